@@ -0,0 +1,98 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.flow.*;
+import io.scicast.streamesh.core.flow.execution.ExecutionPlan;
+import io.scicast.streamesh.core.internal.reflect.Scope;
+import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Generates flow definitions of arbitrary size for the benchmarks. Every pipe runs the same micropipe and
+ * reads the output of the pipe at half its index, so that the generated graphs are both deep and wide.
+ */
+public final class BenchmarkFlows {
+
+    public static final String MICROPIPE_NAME = "benchmark-pipe";
+    public static final String FLOW_INPUT = "seed";
+    public static final String PIPE_INPUT = "source";
+    public static final String PIPE_OUTPUT = "result";
+
+    private BenchmarkFlows() {
+    }
+
+    public static MicroPipe microPipe() {
+        return MicroPipe.builder()
+                .id(UUID.randomUUID().toString())
+                .type("micropipe")
+                .name(MICROPIPE_NAME)
+                .image(MICROPIPE_NAME + ":latest")
+                .inputMapping(TaskInput.builder()
+                        .baseCmd("run")
+                        .parameters(Collections.singletonList(TaskParameter.builder()
+                                .name(PIPE_INPUT)
+                                .internalName("--" + PIPE_INPUT)
+                                .optional(false)
+                                .build()))
+                        .build())
+                .outputMapping(Collections.singletonList(TaskOutput.builder()
+                        .name(PIPE_OUTPUT)
+                        .outputDir("/tmp")
+                        .fileNamePattern(PIPE_OUTPUT + ".txt")
+                        .build()))
+                .build();
+    }
+
+    public static FlowDefinition flow(int pipes) {
+        List<FlowPipe> flowPipes = new ArrayList<>();
+        for (int i = 0; i < pipes; i++) {
+            String source = i == 0
+                    ? "${flow.input." + FLOW_INPUT + "}"
+                    : "${" + pipeName((i - 1) / 2) + ".output." + PIPE_OUTPUT + "}";
+            flowPipes.add(FlowPipe.builder()
+                    .as(pipeName(i))
+                    .type(MICROPIPE_NAME)
+                    .input(Collections.singletonList(PipeInput.builder()
+                            .target("${" + PIPE_INPUT + "}")
+                            .value(source)
+                            .usable(PipeInput.UsabilityState.WHEN_COMPLETED)
+                            .build()))
+                    .output(Collections.singletonList(PipeOutput.builder()
+                            .as(PIPE_OUTPUT)
+                            .target("${" + PIPE_OUTPUT + "}")
+                            .build()))
+                    .build());
+        }
+        return FlowDefinition.builder()
+                .type("flow")
+                .name("benchmark-flow-" + pipes)
+                .input(Collections.singletonList(FlowParameter.builder()
+                        .name(FLOW_INPUT)
+                        .build()))
+                .output(Collections.singletonList(FlowOutput.builder()
+                        .name(PIPE_OUTPUT)
+                        .target("${" + pipeName(pipes - 1) + ".output." + PIPE_OUTPUT + "}")
+                        .build()))
+                .pipes(flowPipes)
+                .build();
+    }
+
+    public static FlowDefinition compile(FlowDefinition definition, StreameshContext context) {
+        Scope scope = ScopeFactory.builder()
+                .streameshContext(context)
+                .build()
+                .create(definition);
+        FlowGraph graph = new FlowGraphBuilder().build(scope);
+        return definition.withScope(scope)
+                .withGraph(graph)
+                .withPlan(ExecutionPlan.compile(graph));
+    }
+
+    private static String pipeName(int index) {
+        return "pipe-" + index;
+    }
+}
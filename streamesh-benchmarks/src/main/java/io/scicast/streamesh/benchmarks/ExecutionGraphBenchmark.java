@@ -0,0 +1,60 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.execution.ExecutablePipeRuntimeNode;
+import io.scicast.streamesh.core.flow.execution.ExecutionGraph;
+import io.scicast.streamesh.core.flow.execution.RuntimeDataValue;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionGraphBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pipes;
+
+    private FlowGraph graph;
+    private ExecutionGraph executionGraph;
+
+    @Setup
+    public void setUp() {
+        InMemoryStreameshStore store = new InMemoryStreameshStore();
+        store.storeDefinition(BenchmarkFlows.microPipe());
+        StreameshContext context = StreameshContext.builder()
+                .store(store)
+                .build();
+        graph = BenchmarkFlows.compile(BenchmarkFlows.flow(pipes), context).getGraph();
+
+        // Only the first pipe can run once the flow input is set, as in a freshly started flow instance.
+        executionGraph = new ExecutionGraph(graph);
+        executionGraph.getInputNodes().forEach(node -> node.update(RuntimeDataValue.builder()
+                .parts(Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
+                        .refName(BenchmarkFlows.FLOW_INPUT)
+                        .value("seed")
+                        .state(RuntimeDataValue.DataState.COMPLETE)
+                        .build())
+                        .collect(Collectors.toSet()))
+                .build()));
+    }
+
+    @Benchmark
+    public ExecutionGraph createExecutionGraph() {
+        return new ExecutionGraph(graph);
+    }
+
+    @Benchmark
+    public Set<ExecutablePipeRuntimeNode> getExecutableNodes() {
+        return executionGraph.getExecutableNodes();
+    }
+}
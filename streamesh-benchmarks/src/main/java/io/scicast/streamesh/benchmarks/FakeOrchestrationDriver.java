@@ -0,0 +1,89 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * In-process driver that does not start anything: every scheduled task completes as soon as the benchmark
+ * drains the pending completions, so that flow benchmarks only measure the engine itself.
+ */
+public class FakeOrchestrationDriver implements OrchestrationDriver {
+
+    private final Queue<Runnable> pendingCompletions = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public CompletableFuture<String> retrieveContainerImage(String image) {
+        return CompletableFuture.completedFuture("sha256:" + image);
+    }
+
+    @Override
+    public TaskDescriptor scheduleTask(TaskExecutionIntent intent, Consumer<TaskExecutionEvent<?>> onUpdate, StreameshContext context) {
+        TaskDescriptor descriptor = TaskDescriptor.builder()
+                .id(intent.getTaskId())
+                .flowInstanceId(intent.getFlowInstanceId())
+                .status(TaskDescriptor.TaskStatus.RUNNING)
+                .started(LocalDateTime.now())
+                .build();
+        pendingCompletions.add(() -> onUpdate.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(descriptor.withStatus(TaskDescriptor.TaskStatus.COMPLETE)
+                        .withExited(LocalDateTime.now()))
+                .build()));
+        return descriptor;
+    }
+
+    /**
+     * Reports the completion of the pending tasks on the calling thread and returns how many were completed.
+     */
+    public int drain() {
+        int completed = 0;
+        Runnable completion;
+        while ((completion = pendingCompletions.poll()) != null) {
+            completion.run();
+            completed++;
+        }
+        return completed;
+    }
+
+    @Override
+    public void killTask(String taskId, StreameshContext context) {
+    }
+
+    @Override
+    public InputStream getTaskOutput(String taskId, String outputName) {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public Optional<Path> getTaskOutputPath(String taskId, String outputName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public InputStream getTaskOutputPart(String taskId, String outputName, String partName) {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public Optional<Path> getTaskOutputPartPath(String taskId, String outputName, String partName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void releaseTask(String taskId) {
+    }
+
+    @Override
+    public long getTaskOutputSize(String taskId) {
+        return 0;
+    }
+}
@@ -0,0 +1,50 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.flow.FlowDefinition;
+import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowGraphBuilder;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowCompilationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pipes;
+
+    private ScopeFactory scopeFactory;
+    private FlowDefinition definition;
+    private io.scicast.streamesh.core.internal.reflect.Scope scope;
+
+    @Setup
+    public void setUp() {
+        InMemoryStreameshStore store = new InMemoryStreameshStore();
+        store.storeDefinition(BenchmarkFlows.microPipe());
+        scopeFactory = ScopeFactory.builder()
+                .streameshContext(StreameshContext.builder()
+                        .store(store)
+                        .build())
+                .build();
+        definition = BenchmarkFlows.flow(pipes);
+        scope = scopeFactory.create(definition);
+    }
+
+    @Benchmark
+    public io.scicast.streamesh.core.internal.reflect.Scope createScope() {
+        return scopeFactory.create(definition);
+    }
+
+    @Benchmark
+    public FlowGraph buildGraph() {
+        return new FlowGraphBuilder().build(scope);
+    }
+}
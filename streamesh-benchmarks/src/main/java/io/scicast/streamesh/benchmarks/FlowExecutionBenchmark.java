@@ -0,0 +1,65 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import io.scicast.streamesh.core.internal.DefaultStreameshOrchestrator;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs whole flow instances through the orchestrator, from scheduling to completion, on top of the fake driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowExecutionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pipes;
+
+    private FakeOrchestrationDriver driver;
+    private InMemoryStreameshStore store;
+    private DefaultStreameshOrchestrator orchestrator;
+    private String flowDefinitionId;
+    private Map<String, String> input = Collections.singletonMap(BenchmarkFlows.FLOW_INPUT, "seed");
+
+    @Setup
+    public void setUp() {
+        driver = new FakeOrchestrationDriver();
+        store = new InMemoryStreameshStore();
+        orchestrator = new DefaultStreameshOrchestrator("127.0.0.1", driver, store);
+        orchestrator.applyDefinition(BenchmarkFlows.microPipe());
+        flowDefinitionId = orchestrator.applyDefinition(BenchmarkFlows.flow(pipes));
+    }
+
+    @Benchmark
+    public FlowInstance runFlow() {
+        FlowInstance instance = orchestrator.scheduleFlow(flowDefinitionId, input);
+        // Completions are handled asynchronously by the mailbox of the flow instance, which schedules the next pipes.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        FlowInstance completed = store.getFlowInstance(instance.getId());
+        while (!FlowInstance.FlowInstanceStatus.COMPLETE.equals(completed.getStatus())) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Flow instance " + instance.getId() + " did not complete.");
+            }
+            if (driver.drain() == 0) {
+                Thread.onSpinWait();
+            }
+            completed = store.getFlowInstance(instance.getId());
+        }
+        // Keep the store at a constant size across invocations.
+        new ArrayList<>(store.getTasksByFlowInstance(instance.getId())).stream()
+                .map(TaskDescriptor::getId)
+                .forEach(store::removeTask);
+        store.removeFlowInstance(instance.getId());
+        return completed;
+    }
+}
@@ -0,0 +1,78 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowParameter;
+import io.scicast.streamesh.core.flow.PipeInput;
+import io.scicast.streamesh.core.flow.execution.FlowParameterRuntimeNode;
+import io.scicast.streamesh.core.flow.execution.PipeInputRuntimeNode;
+import io.scicast.streamesh.core.flow.execution.RuntimeDataValue;
+import io.scicast.streamesh.core.internal.reflect.GraphNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how a pipe input merges an update of a repeatable value made of many parts,
+ * e.g. the outputs of many upstream pipes turning from flowing to complete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipeInputMergeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int parts;
+
+    private FlowGraph.FlowNode inputNode;
+    private FlowParameterRuntimeNode flowingSource;
+    private FlowParameterRuntimeNode completeSource;
+
+    @Setup
+    public void setUp() {
+        inputNode = FlowGraph.FlowNode.builder()
+                .name("input")
+                .type(GraphNode.NodeType.INTERNAL)
+                .value(PipeInput.builder()
+                        .target("${" + BenchmarkFlows.PIPE_INPUT + "}")
+                        .value("${upstream.output." + BenchmarkFlows.PIPE_OUTPUT + "}")
+                        .usable(PipeInput.UsabilityState.WHEN_COMPLETED)
+                        .build())
+                .build();
+        flowingSource = source(RuntimeDataValue.DataState.FLOWING);
+        completeSource = source(RuntimeDataValue.DataState.COMPLETE);
+    }
+
+    @Benchmark
+    public RuntimeDataValue mergeValues() {
+        PipeInputRuntimeNode node = new PipeInputRuntimeNode(inputNode);
+        node.notify(flowingSource);
+        node.notify(completeSource);
+        return node.getValue();
+    }
+
+    private FlowParameterRuntimeNode source(RuntimeDataValue.DataState state) {
+        FlowParameterRuntimeNode node = new FlowParameterRuntimeNode(FlowGraph.FlowNode.builder()
+                .name("upstream-" + state)
+                .type(GraphNode.NodeType.SOURCE)
+                .value(FlowParameter.builder()
+                        .name("upstream")
+                        .repeatable(true)
+                        .build())
+                .build());
+        node.update(RuntimeDataValue.builder()
+                .parts(IntStream.range(0, parts)
+                        .mapToObj(i -> RuntimeDataValue.RuntimeDataValuePart.builder()
+                                .refName(BenchmarkFlows.PIPE_OUTPUT)
+                                .value("http://streamesh-server:8080/api/v1/tasks/task-" + i + "/" + BenchmarkFlows.PIPE_OUTPUT)
+                                .state(state)
+                                .build())
+                        .collect(Collectors.toSet()))
+                .build());
+        return node;
+    }
+}
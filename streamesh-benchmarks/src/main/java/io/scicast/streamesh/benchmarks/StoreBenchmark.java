@@ -0,0 +1,66 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readers looking tasks up by id and by flow instance while a writer keeps moving tasks between statuses.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+
+    private static final int TASKS = 10_000;
+    private static final int FLOW_INSTANCES = 100;
+
+    private InMemoryStreameshStore store;
+    private MicroPipe pipe;
+    private TaskDescriptor[] tasks;
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryStreameshStore();
+        pipe = BenchmarkFlows.microPipe();
+        store.storeDefinition(pipe);
+        tasks = new TaskDescriptor[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            tasks[i] = TaskDescriptor.builder()
+                    .id("task-" + i)
+                    .serviceId(pipe.getId())
+                    .serviceName(pipe.getName())
+                    .flowInstanceId("flow-instance-" + (i % FLOW_INSTANCES))
+                    .status(TaskDescriptor.TaskStatus.RUNNING)
+                    .build();
+            store.updateTask(pipe.getId(), tasks[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public int read() {
+        int index = ThreadLocalRandom.current().nextInt(TASKS);
+        TaskDescriptor task = store.getTaskById(tasks[index].getId());
+        return task.getId().length() + store.getTasksByFlowInstance(task.getFlowInstanceId()).size();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TaskDescriptor.TaskStatus status = random.nextBoolean()
+                ? TaskDescriptor.TaskStatus.RUNNING
+                : TaskDescriptor.TaskStatus.COMPLETE;
+        store.updateTask(pipe.getId(), tasks[random.nextInt(TASKS)].withStatus(status));
+    }
+}
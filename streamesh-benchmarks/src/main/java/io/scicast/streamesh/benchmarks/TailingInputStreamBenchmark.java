@@ -0,0 +1,77 @@
+package io.scicast.streamesh.benchmarks;
+
+import io.scicast.streamesh.docker.driver.internal.OutputDirectoryWatcher;
+import io.scicast.streamesh.docker.driver.internal.SharedOutputBuffer;
+import io.scicast.streamesh.docker.driver.internal.TailingInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a completed 64 MB task output, either alone or with several readers sharing the output buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TailingInputStreamBenchmark {
+
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private Path directory;
+    private SharedOutputBuffer buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("streamesh-benchmark");
+        Path file = directory.resolve(BenchmarkFlows.PIPE_OUTPUT + ".txt");
+        byte[] block = new byte[READ_BUFFER_SIZE];
+        new Random(42).nextBytes(block);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            for (int written = 0; written < FILE_SIZE; written += block.length) {
+                os.write(block);
+            }
+        }
+        buffer = new SharedOutputBuffer(file.toString(), new OutputDirectoryWatcher());
+        buffer.notifyWriteCompletion();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        buffer.release();
+        Files.delete(directory.resolve(BenchmarkFlows.PIPE_OUTPUT + ".txt"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long singleReader() throws IOException {
+        return readFully();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long concurrentReaders() throws IOException {
+        return readFully();
+    }
+
+    private long readFully() throws IOException {
+        long total = 0;
+        byte[] buf = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = new TailingInputStream(buffer)) {
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
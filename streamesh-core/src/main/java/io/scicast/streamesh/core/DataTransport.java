@@ -0,0 +1,11 @@
+package io.scicast.streamesh.core;
+
+/**
+ * How the output of a task reaches a task consuming it. Over HTTP the consumer downloads the output from the server.
+ * With a volume, the output file is mounted read-only into the consumer container when the driver running it holds
+ * the completed output locally; otherwise HTTP is used.
+ */
+public enum DataTransport {
+    HTTP,
+    VOLUME
+}
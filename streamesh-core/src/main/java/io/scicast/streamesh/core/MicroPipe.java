@@ -32,4 +32,17 @@ public class MicroPipe implements Definition {
     @LocallyScoped(as = "input")
     private TaskInput inputMapping;
 
+    private WarmPool warmPool;
+    private TaskPriority priority;
+    private int maxConcurrency;
+    private Resources resources;
+    private boolean cacheable;
+
+    private Status status;
+    private String statusMessage;
+
+    public enum Status {
+        PENDING_IMAGE, READY, FAILED
+    }
+
 }
@@ -1,17 +1,35 @@
 package io.scicast.streamesh.core;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface OrchestrationDriver {
 
-    String retrieveContainerImage(String image);
+    CompletableFuture<String> retrieveContainerImage(String image);
 
+    /**
+     * Schedules a task. Status changes are reported to the update handler as container state change events carrying
+     * a {@link TaskDescriptor}, and each output is reported once, as soon as it is no longer empty, as an output
+     * availability event carrying a {@link TaskOutputDescriptor}. Multipart outputs are reported once per part.
+     */
     TaskDescriptor scheduleTask(TaskExecutionIntent intent, Consumer<TaskExecutionEvent<?>> onUpdate, StreameshContext context);
 
     void killTask(String taskId, StreameshContext context);
 
     InputStream getTaskOutput(String taskId, String outputName);
 
+    Optional<Path> getTaskOutputPath(String taskId, String outputName);
+
+    InputStream getTaskOutputPart(String taskId, String outputName, String partName);
+
+    Optional<Path> getTaskOutputPartPath(String taskId, String outputName, String partName);
+
+    void releaseTask(String taskId);
+
+    long getTaskOutputSize(String taskId);
+
 }
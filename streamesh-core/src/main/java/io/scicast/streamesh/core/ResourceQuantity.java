@@ -0,0 +1,59 @@
+package io.scicast.streamesh.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+/**
+ * An amount of CPU, in cores, and of memory, either in bytes or with a k, m or g suffix (decimal or binary, such as
+ * 512m or 1Gi).
+ */
+@Builder
+@Getter
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceQuantity {
+
+    private double cpu;
+    private String memory;
+
+    @JsonIgnore
+    public long getMemoryBytes() {
+        return parseMemory(memory);
+    }
+
+    public static long parseMemory(String memory) {
+        if (memory == null || memory.isBlank()) {
+            return 0;
+        }
+        String value = memory.trim().toLowerCase();
+        long multiplier = 1;
+        if (value.endsWith("i")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        if (value.endsWith("b")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        switch (value.charAt(value.length() - 1)) {
+            case 'k':
+                multiplier = 1L << 10;
+                break;
+            case 'm':
+                multiplier = 1L << 20;
+                break;
+            case 'g':
+                multiplier = 1L << 30;
+                break;
+            default:
+                break;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return (long) (Double.parseDouble(value.trim()) * multiplier);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid memory quantity " + memory, e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.scicast.streamesh.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+/**
+ * Resources needed by the tasks of a micropipe. Requests are what admission reserves on the host for each task,
+ * limits are enforced on its container. A task without requests is assumed to request its limits.
+ */
+@Builder
+@Getter
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class Resources {
+
+    private ResourceQuantity requests;
+    private ResourceQuantity limits;
+    private String cpuset;
+
+    @JsonIgnore
+    public double getRequestedCpu() {
+        if (requests != null && requests.getCpu() > 0) {
+            return requests.getCpu();
+        }
+        return limits != null ? limits.getCpu() : 0;
+    }
+
+    @JsonIgnore
+    public long getRequestedMemoryBytes() {
+        if (requests != null && requests.getMemoryBytes() > 0) {
+            return requests.getMemoryBytes();
+        }
+        return limits != null ? limits.getMemoryBytes() : 0;
+    }
+}
@@ -1,5 +1,7 @@
 package io.scicast.streamesh.core;
 
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import io.scicast.streamesh.core.flow.execution.ExecutableRegistry;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -11,5 +13,9 @@ public class StreameshContext {
     private StreameshOrchestrator orchestrator;
     private OrchestrationDriver orchestrationDriver;
     private StreameshServerInfo serverInfo;
+    private ExecutionEngine executionEngine;
+
+    @Builder.Default
+    private ExecutableRegistry executableRegistry = new ExecutableRegistry();
 
 }
@@ -4,7 +4,9 @@ import io.scicast.streamesh.core.flow.FlowInstance;
 import io.scicast.streamesh.core.flow.execution.FlowExecutionEvent;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -32,6 +34,11 @@ public interface StreameshOrchestrator {
 
     TaskDescriptor scheduleTask(String definitionId, String taskId, Map<?, ?> input, Consumer<TaskExecutionEvent<?>> eventHandler);
 
+    TaskDescriptor scheduleTask(String definitionId, String taskId, String flowInstanceId, Map<?, ?> input, Consumer<TaskExecutionEvent<?>> eventHandler);
+
+    TaskDescriptor scheduleTask(String definitionId, String taskId, String flowInstanceId, Map<?, ?> input,
+                                Map<String, DataTransport> inputTransports, Consumer<TaskExecutionEvent<?>> eventHandler);
+
     void killTask(String taskId);
 
     void killFlowInstance(String flowInstanceId);
@@ -48,9 +55,17 @@ public interface StreameshOrchestrator {
 
     InputStream getTaskOutput(String taskDescriptorId, String outputName);
 
+    Optional<Path> getCompletedTaskOutput(String taskDescriptorId, String outputName);
+
+    InputStream getTaskOutputPart(String taskDescriptorId, String outputName, String partName);
+
+    Optional<Path> getCompletedTaskOutputPart(String taskDescriptorId, String outputName, String partName);
+
     InputStream getFlowOutput(String flowInstanceId, String outputName);
 
     Set<FlowInstance> getAllFlowInstances();
 
     FlowInstance getFlowInstance(String flowInstanceId);
+
+    Map<String, Object> getMetrics();
 }
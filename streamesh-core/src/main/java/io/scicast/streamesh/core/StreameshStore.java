@@ -6,6 +6,9 @@ import java.util.Set;
 
 public interface StreameshStore {
 
+    default void init(StreameshContext context) {
+    }
+
     void storeDefinition(Definition definition);
 
     void storeFlowInstance(FlowInstance instance);
@@ -28,6 +31,11 @@ public interface StreameshStore {
 
     Set<TaskDescriptor> getTasksByDefinition(String definitionId);
 
+    Set<TaskDescriptor> getTasksByStatus(TaskDescriptor.TaskStatus status);
+
+    /**
+     * Throws a {@link io.scicast.streamesh.core.exception.NotFoundException} when no task has the given id.
+     */
     TaskDescriptor getTaskById(String jobId);
 
     void updateTask(String definitionId, TaskDescriptor descriptor);
@@ -9,6 +9,8 @@ import java.time.LocalDateTime;
 @Setter
 @Builder
 @With
+@NoArgsConstructor
+@AllArgsConstructor
 @EqualsAndHashCode(of = "id")
 public class TaskDescriptor {
 
@@ -17,13 +19,16 @@ public class TaskDescriptor {
     private String serviceName;
     private String serviceId;
     private String containerId;
+    private String flowInstanceId;
+    private String nodeId;
+    private String cachedFrom;
     private String errorMessage;
     private CryptoUtil.WrappedAesGCMKey key;
     private LocalDateTime started;
     private LocalDateTime exited;
 
     public enum TaskStatus {
-        FAILED, RUNNING, COMPLETE, KILLED
+        QUEUED, LAUNCHING, FAILED, RUNNING, COMPLETE, KILLED
     }
 
 }
@@ -11,9 +11,14 @@ import java.util.Map;
 public class TaskExecutionIntent {
 
     private String taskId;
+    private String definitionId;
+    private String flowInstanceId;
     private String image;
     private TaskInput taskInput;
     private List<TaskOutput> taskOutputs;
     private Map<?, ?> runtimeInput;
+    private Map<String, DataTransport> inputTransports;
+    private WarmPool warmPool;
+    private Resources resources;
 
 }
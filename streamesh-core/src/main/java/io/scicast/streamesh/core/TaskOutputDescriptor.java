@@ -0,0 +1,18 @@
+package io.scicast.streamesh.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes the output of a task that has started to be written, as reported by the orchestration driver in an
+ * output availability event. For multipart outputs, each part is reported on its own, with its name.
+ */
+@Getter
+@Builder
+public class TaskOutputDescriptor {
+
+    private String taskId;
+    private String outputName;
+    private String partName;
+
+}
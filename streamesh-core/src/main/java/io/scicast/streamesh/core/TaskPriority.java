@@ -0,0 +1,5 @@
+package io.scicast.streamesh.core;
+
+public enum TaskPriority {
+    HIGH, NORMAL, LOW
+}
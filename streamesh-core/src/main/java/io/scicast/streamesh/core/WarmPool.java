@@ -0,0 +1,21 @@
+package io.scicast.streamesh.core;
+
+import lombok.*;
+
+/**
+ * Opts a micropipe into the warm container pool of the driver: idle containers are kept ready for the micropipe,
+ * so that scheduling a task only hands its command over to one of them. The command is run through the entrypoint
+ * of the image, as in a new container. The image must however provide the command the idle containers run, and
+ * micropipes whose image does not are run in new containers instead.
+ */
+@Builder
+@Getter
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarmPool {
+
+    private int maxSize;
+    private long idleTimeoutSeconds;
+
+}
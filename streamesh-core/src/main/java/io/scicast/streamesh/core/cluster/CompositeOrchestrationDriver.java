@@ -0,0 +1,222 @@
+package io.scicast.streamesh.core.cluster;
+
+import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.exception.NotFoundException;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Spreads tasks over several worker nodes, each driven by its own orchestration driver. A task goes to the node with
+ * the lowest weighted number of active tasks, unless a node already holds outputs of the upstream tasks it reads and
+ * is not busier than that node by more than the locality slack, in which case it stays next to its inputs. Once
+ * placed, everything about a task, including its outputs, is served by the node owning it. Should a node refuse a
+ * task, the next node in order is tried.
+ */
+public class CompositeOrchestrationDriver implements OrchestrationDriver {
+
+    public static final String LOCALITY_SLACK_PROPERTY = "streamesh.cluster.locality.slack";
+    private static final int DEFAULT_LOCALITY_SLACK = 2;
+    private static final Pattern TASK_OUTPUT_URL = Pattern.compile("/tasks/([^/]+)/");
+    private static final Set<TaskDescriptor.TaskStatus> TERMINAL_STATUSES = EnumSet.of(
+            TaskDescriptor.TaskStatus.COMPLETE,
+            TaskDescriptor.TaskStatus.FAILED,
+            TaskDescriptor.TaskStatus.KILLED);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final List<WorkerNode> nodes;
+    private final int localitySlack;
+    private final Map<String, WorkerNode> taskNodes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeTasks = new ConcurrentHashMap<>();
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    public CompositeOrchestrationDriver(List<WorkerNode> nodes) {
+        this(nodes, Integer.getInteger(LOCALITY_SLACK_PROPERTY, DEFAULT_LOCALITY_SLACK));
+    }
+
+    public CompositeOrchestrationDriver(List<WorkerNode> nodes, int localitySlack) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker node is needed.");
+        }
+        this.nodes = new ArrayList<>(nodes);
+        this.localitySlack = localitySlack;
+        nodes.forEach(node -> activeTasks.put(node.getId(), new AtomicInteger()));
+    }
+
+    public List<WorkerNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public int getActiveTasks(String nodeId) {
+        AtomicInteger count = activeTasks.get(nodeId);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Resolves the image on every node, so that tasks can be placed on any of them.
+     */
+    @Override
+    public CompletableFuture<String> retrieveContainerImage(String image) {
+        List<CompletableFuture<String>> resolutions = nodes.stream()
+                .map(node -> node.getDriver().retrieveContainerImage(image))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(resolutions.toArray(new CompletableFuture[0]))
+                .thenApply(v -> resolutions.get(0).join());
+    }
+
+    @Override
+    public TaskDescriptor scheduleTask(TaskExecutionIntent intent, Consumer<TaskExecutionEvent<?>> onUpdate, StreameshContext context) {
+        String taskId = intent.getTaskId();
+        RuntimeException failure = null;
+        for (WorkerNode node : rank(intent)) {
+            taskNodes.put(taskId, node);
+            acquire(taskId, node);
+            try {
+                return node.getDriver().scheduleTask(intent, event -> onUpdate.accept(onNodeEvent(node, event)), context)
+                        .withNodeId(node.getId());
+            } catch (RuntimeException e) {
+                logger.warning(String.format("Node %s could not schedule task %s: %s", node.getId(), taskId, e.getMessage()));
+                release(taskId, node);
+                taskNodes.remove(taskId, node);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public void killTask(String taskId, StreameshContext context) {
+        WorkerNode node = getNode(taskId);
+        node.getDriver().killTask(taskId, context);
+        release(taskId, node);
+    }
+
+    @Override
+    public InputStream getTaskOutput(String taskId, String outputName) {
+        return getNode(taskId).getDriver().getTaskOutput(taskId, outputName);
+    }
+
+    @Override
+    public Optional<Path> getTaskOutputPath(String taskId, String outputName) {
+        WorkerNode node = taskNodes.get(taskId);
+        return node != null ? node.getDriver().getTaskOutputPath(taskId, outputName) : Optional.empty();
+    }
+
+    @Override
+    public InputStream getTaskOutputPart(String taskId, String outputName, String partName) {
+        return getNode(taskId).getDriver().getTaskOutputPart(taskId, outputName, partName);
+    }
+
+    @Override
+    public Optional<Path> getTaskOutputPartPath(String taskId, String outputName, String partName) {
+        WorkerNode node = taskNodes.get(taskId);
+        return node != null ? node.getDriver().getTaskOutputPartPath(taskId, outputName, partName) : Optional.empty();
+    }
+
+    /**
+     * Tasks placed before a restart are no longer known, so all the nodes are asked to release them.
+     */
+    @Override
+    public void releaseTask(String taskId) {
+        WorkerNode node = taskNodes.remove(taskId);
+        if (node != null) {
+            release(taskId, node);
+            node.getDriver().releaseTask(taskId);
+        } else {
+            nodes.forEach(n -> n.getDriver().releaseTask(taskId));
+        }
+    }
+
+    @Override
+    public long getTaskOutputSize(String taskId) {
+        WorkerNode node = taskNodes.get(taskId);
+        if (node != null) {
+            return node.getDriver().getTaskOutputSize(taskId);
+        }
+        return nodes.stream()
+                .mapToLong(n -> n.getDriver().getTaskOutputSize(taskId))
+                .max()
+                .orElse(0);
+    }
+
+    private List<WorkerNode> rank(TaskExecutionIntent intent) {
+        List<WorkerNode> ranked = nodes.stream()
+                .sorted(Comparator.comparingDouble(this::load))
+                .collect(Collectors.toList());
+        int leastActive = getActiveTasks(ranked.get(0).getId());
+        Map<WorkerNode, Long> upstreamOutputs = upstreamTasks(intent.getRuntimeInput())
+                .map(taskNodes::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(node -> node, Collectors.counting()));
+        upstreamOutputs.entrySet().stream()
+                .filter(entry -> getActiveTasks(entry.getKey().getId()) - leastActive <= localitySlack)
+                .max(Map.Entry.comparingByValue())
+                .ifPresent(entry -> {
+                    ranked.remove(entry.getKey());
+                    ranked.add(0, entry.getKey());
+                });
+        return ranked;
+    }
+
+    private Stream<String> upstreamTasks(Map<?, ?> runtimeInput) {
+        if (runtimeInput == null) {
+            return Stream.empty();
+        }
+        return runtimeInput.values().stream()
+                .flatMap(value -> value instanceof Collection ? ((Collection<?>) value).stream() : Stream.of(value))
+                .filter(value -> value instanceof String)
+                .flatMap(value -> {
+                    Matcher matcher = TASK_OUTPUT_URL.matcher((String) value);
+                    return matcher.find() ? Stream.of(matcher.group(1)) : Stream.empty();
+                });
+    }
+
+    private double load(WorkerNode node) {
+        return getActiveTasks(node.getId()) / (node.getWeight() > 0 ? node.getWeight() : 1);
+    }
+
+    private TaskExecutionEvent<?> onNodeEvent(WorkerNode node, TaskExecutionEvent<?> event) {
+        if (!(event.getDescriptor() instanceof TaskDescriptor)) {
+            return event;
+        }
+        TaskDescriptor descriptor = (TaskDescriptor) event.getDescriptor();
+        if (TERMINAL_STATUSES.contains(descriptor.getStatus())) {
+            release(descriptor.getId(), node);
+        }
+        return TaskExecutionEvent.builder()
+                .type(event.getType())
+                .descriptor(descriptor.withNodeId(node.getId()))
+                .build();
+    }
+
+    private WorkerNode getNode(String taskId) {
+        WorkerNode node = taskNodes.get(taskId);
+        if (node == null) {
+            throw new NotFoundException("Cannot find the node running task " + taskId);
+        }
+        return node;
+    }
+
+    private void acquire(String taskId, WorkerNode node) {
+        if (active.add(taskId)) {
+            activeTasks.get(node.getId()).incrementAndGet();
+        }
+    }
+
+    private void release(String taskId, WorkerNode node) {
+        if (active.remove(taskId)) {
+            activeTasks.get(node.getId()).decrementAndGet();
+        }
+    }
+}
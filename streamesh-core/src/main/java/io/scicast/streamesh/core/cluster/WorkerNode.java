@@ -0,0 +1,21 @@
+package io.scicast.streamesh.core.cluster;
+
+import io.scicast.streamesh.core.OrchestrationDriver;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A node tasks can be placed on, reached through its own orchestration driver. The weight is the share of the tasks
+ * the node takes relative to the other nodes when they are equally busy.
+ */
+@Builder
+@Getter
+public class WorkerNode {
+
+    private String id;
+    private OrchestrationDriver driver;
+
+    @Builder.Default
+    private double weight = 1;
+
+}
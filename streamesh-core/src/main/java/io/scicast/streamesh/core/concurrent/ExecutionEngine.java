@@ -0,0 +1,166 @@
+package io.scicast.streamesh.core.concurrent;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ExecutionEngine {
+
+    public static final String ENGINE_MODE_PROPERTY = "streamesh.engine.mode";
+    public static final String ENGINE_THREADS_PROPERTY = "streamesh.engine.threads";
+    public static final String ENGINE_QUEUE_CAPACITY_PROPERTY = "streamesh.engine.queue.capacity";
+    public static final String ENGINE_SCHEDULER_THREADS_PROPERTY = "streamesh.engine.scheduler.threads";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    @Getter
+    private final Mode mode;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore permits;
+
+    @Builder
+    public ExecutionEngine(Mode mode, int threads, int queueCapacity, int schedulerThreads) {
+        this.mode = mode != null ? mode : Mode.POOL;
+        int workerThreads = threads > 0 ? threads : defaultThreads();
+        this.permits = new Semaphore(workerThreads + (queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY));
+        this.workers = createWorkers(this.mode, workerThreads);
+        this.scheduler = Executors.newScheduledThreadPool(schedulerThreads > 0 ? schedulerThreads : defaultSchedulerThreads(),
+                new EngineThreadFactory("streamesh-engine-scheduler"));
+    }
+
+    public static ExecutionEngine fromSystemProperties() {
+        return ExecutionEngine.builder()
+                .mode(Mode.valueOf(System.getProperty(ENGINE_MODE_PROPERTY, Mode.POOL.name())
+                        .toUpperCase()
+                        .replace('-', '_')))
+                .threads(Integer.getInteger(ENGINE_THREADS_PROPERTY, defaultThreads()))
+                .queueCapacity(Integer.getInteger(ENGINE_QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY))
+                .schedulerThreads(Integer.getInteger(ENGINE_SCHEDULER_THREADS_PROPERTY, defaultSchedulerThreads()))
+                .build();
+    }
+
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            // The engine is saturated: running the task on the submitting thread slows producers down
+            // instead of queueing without bounds.
+            runSafely(task);
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    runSafely(task);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a task without taking a permit, and so without ever running it on the calling thread. Only meant for
+     * callers bounding the number of their pending tasks themselves, such as mailboxes which have at most one drain
+     * scheduled at any time.
+     */
+    public void enqueue(Runnable task) {
+        workers.execute(() -> runSafely(task));
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduler.schedule(() -> runSafely(task), delay, unit);
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(() -> runSafely(task), initialDelay, period, unit);
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "A task submitted to the execution engine failed: " + t.getMessage(), t);
+        }
+    }
+
+    private ExecutorService createWorkers(Mode mode, int threads) {
+        switch (mode) {
+            case FORK_JOIN:
+                return new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            case VIRTUAL:
+                try {
+                    Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                    return (ExecutorService) factory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    logger.warning("Virtual threads are not supported by this JVM. Falling back to a thread pool.");
+                }
+                // Virtual threads need Java 21: on older JVMs, such as the Java 11 this project targets, the engine
+                // falls through to the platform thread pool below.
+            default:
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), new EngineThreadFactory("streamesh-engine-worker"));
+                pool.allowCoreThreadTimeOut(true);
+                return pool;
+        }
+    }
+
+    private static int defaultThreads() {
+        return Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    private static int defaultSchedulerThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    public enum Mode {
+        POOL, FORK_JOIN, VIRTUAL
+    }
+
+    private static class EngineThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        EngineThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.scicast.streamesh.core.concurrent;
+
+/**
+ * Holds the execution engine shared by the orchestrator and the drivers of this process.
+ */
+public class ExecutionEngineFactory {
+
+    private static final ExecutionEngine INSTANCE = ExecutionEngine.fromSystemProperties();
+
+    public static ExecutionEngine shared() {
+        return INSTANCE;
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.scicast.streamesh.core.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mailbox that runs the tasks submitted from any number of threads one at a time, in submission order, on the
+ * threads of a shared {@link ExecutionEngine}. At most one drain of the mailbox is scheduled at any time, so that
+ * the state touched by its tasks needs no locking, while different mailboxes are drained in parallel.
+ */
+public class SerialExecutor implements Executor {
+
+    public static final String MAILBOX_BATCH_SIZE_PROPERTY = "streamesh.mailbox.batch.size";
+
+    private static final int BATCH_SIZE = Integer.getInteger(MAILBOX_BATCH_SIZE_PROPERTY, 64);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ExecutionEngine engine;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining;
+
+    public SerialExecutor(ExecutionEngine engine) {
+        this(engine, false);
+    }
+
+    private SerialExecutor(ExecutionEngine engine, boolean suspended) {
+        this.engine = engine;
+        this.draining = new AtomicBoolean(suspended);
+    }
+
+    /**
+     * Creates a mailbox that queues the submitted tasks without running them until {@link #resume()} is called by
+     * its owner, which can therefore initialise the state shared with the tasks on its own thread.
+     */
+    public static SerialExecutor suspended(ExecutionEngine engine) {
+        return new SerialExecutor(engine, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        scheduleDrain();
+    }
+
+    public void resume() {
+        draining.set(false);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!tasks.isEmpty() && draining.compareAndSet(false, true)) {
+            // Drains are queued even when the engine is saturated: running them on the calling thread would drain
+            // mailboxes on the threads of their producers, and nest each drain in the one rescheduling it.
+            engine.enqueue(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            int processed = 0;
+            // Bounded batches keep a busy mailbox from holding on to an engine thread indefinitely.
+            while (processed < BATCH_SIZE && (task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.log(Level.WARNING, "A task submitted to a mailbox failed: " + t.getMessage(), t);
+                }
+                processed++;
+            }
+        } finally {
+            draining.set(false);
+            scheduleDrain();
+        }
+    }
+
+}
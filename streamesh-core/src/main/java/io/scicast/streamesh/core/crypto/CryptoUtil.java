@@ -1,8 +1,10 @@
 package io.scicast.streamesh.core.crypto;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import javax.crypto.Cipher;
@@ -102,6 +104,8 @@ public class CryptoUtil {
 
     @Builder
     @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class WrappedAesGCMKey {
 
         private byte[] publicKey;
@@ -0,0 +1,7 @@
+package io.scicast.streamesh.core.exception;
+
+public class CapacityExceededException extends RuntimeException {
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package io.scicast.streamesh.core.exception;
+
+public class DefinitionNotReadyException extends RuntimeException {
+    public DefinitionNotReadyException(String message) {
+        super(message);
+    }
+}
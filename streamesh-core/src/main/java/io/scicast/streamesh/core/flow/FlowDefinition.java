@@ -2,6 +2,7 @@ package io.scicast.streamesh.core.flow;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.scicast.streamesh.core.Definition;
+import io.scicast.streamesh.core.flow.execution.ExecutionPlan;
 import io.scicast.streamesh.core.internal.reflect.FlowScoped;
 import io.scicast.streamesh.core.internal.reflect.InScope;
 import io.scicast.streamesh.core.internal.reflect.LocallyScoped;
@@ -48,4 +49,7 @@ public class FlowDefinition implements Definition {
     @JsonIgnore
     private Scope scope;
 
+    @JsonIgnore
+    private ExecutionPlan plan;
+
 }
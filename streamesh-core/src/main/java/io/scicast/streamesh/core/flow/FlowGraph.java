@@ -15,10 +15,15 @@ public class FlowGraph implements Cloneable {
     private Set<FlowNode> nodes = new HashSet<>();
 
     public void createNode(String name, Object value, GraphNode.NodeType nodeType) {
+        createNode(name, value, nodeType, null);
+    }
+
+    public void createNode(String name, Object value, GraphNode.NodeType nodeType, FlowPipe pipe) {
         FlowNode node = FlowNode.builder()
                 .name(name)
                 .value(value)
                 .type(nodeType)
+                .pipe(pipe)
                 .build();
         if (nodes.contains(node)) {
             throw new IllegalArgumentException("Duplicate nodes named " + name);
@@ -125,6 +130,7 @@ public class FlowGraph implements Cloneable {
         private String name;
         private Object value;
         private GraphNode.NodeType type;
+        private FlowPipe pipe;
 
         @Builder.Default
         private Set<FlowEdge> incomingLinks = new HashSet<>();
@@ -146,6 +152,7 @@ public class FlowGraph implements Cloneable {
                 .name(name)
                 .type(type)
                 .value(value)
+                .pipe(pipe)
                 .build();
             return clone;
         }
@@ -3,15 +3,16 @@ package io.scicast.streamesh.core.flow;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.scicast.streamesh.core.TaskDescriptor;
 import io.scicast.streamesh.core.flow.execution.ExecutionGraph;
-import lombok.Builder;
-import lombok.Getter;
-import lombok.With;
+import lombok.*;
 
 import java.time.LocalDateTime;
 
 @Builder
 @Getter
 @With
+@EqualsAndHashCode(exclude = "executionGraph")
+@NoArgsConstructor
+@AllArgsConstructor
 public class FlowInstance {
 
     private String id;
@@ -26,7 +27,7 @@ public class FlowInstance {
     private ExecutionGraph executionGraph;
 
     public enum FlowInstanceStatus {
-        LAUNCHING, RUNNING, COMPLETE, KILLED
+        LAUNCHING, RUNNING, COMPLETE, FAILED, KILLED
     }
 
 }
@@ -29,4 +29,15 @@ public class FlowPipe {
     @LocallyScoped(as = "output")
     private List<PipeOutput> output;
 
+    /**
+     * Name of an input of the pipe holding a list of values. When set, the pipe runs once per value, and each of its
+     * outputs gathers the outputs of all the runs as a multipart value.
+     */
+    private String foreach;
+
+    /**
+     * Maximum number of runs of a foreach pipe executing at the same time, unbounded when 0.
+     */
+    private int parallelism;
+
 }
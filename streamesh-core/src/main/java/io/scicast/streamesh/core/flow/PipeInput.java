@@ -1,5 +1,6 @@
 package io.scicast.streamesh.core.flow;
 
+import io.scicast.streamesh.core.DataTransport;
 import io.scicast.streamesh.core.TaskParameter;
 import io.scicast.streamesh.core.internal.reflect.GraphNode;
 import io.scicast.streamesh.core.internal.reflect.LocallyScoped;
@@ -26,6 +27,8 @@ public class PipeInput {
 
     private UsabilityState usable = UsabilityState.WHEN_COMPLETED;
 
+    private DataTransport transport = DataTransport.HTTP;
+
     public enum UsabilityState {
         WHILE_BEING_PRODUCED,
         WHEN_COMPLETED
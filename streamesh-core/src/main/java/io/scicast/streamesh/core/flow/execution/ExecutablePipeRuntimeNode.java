@@ -2,9 +2,9 @@ package io.scicast.streamesh.core.flow.execution;
 
 import io.scicast.streamesh.core.flow.FlowGraph;
 import lombok.Getter;
-import lombok.Setter;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,9 +22,10 @@ public abstract class ExecutablePipeRuntimeNode extends UpdatableRuntimeNode {
     protected Map<String, String> upstreamNodeToParameterSpec = new HashMap<>();
 
     @Getter
-    @Setter
     protected boolean running;
 
+    private ReadinessListener readinessListener;
+
     public ExecutablePipeRuntimeNode(FlowGraph.FlowNode flowNode) {
         this.name = flowNode.getName();
         this.staticGraphNode = flowNode;
@@ -34,22 +35,68 @@ public abstract class ExecutablePipeRuntimeNode extends UpdatableRuntimeNode {
                 .collect(Collectors.toSet());
     }
 
+    @Override
+    public RuntimeNodeState captureState() {
+        return super.captureState()
+                .withRunning(running)
+                .withPipeInput(new HashMap<>(pipeInput))
+                .withPendingInputs(new HashSet<>(expectedNotificationsSubjects));
+    }
+
+    @Override
+    public void restoreState(RuntimeNodeState state) {
+        super.restoreState(state);
+        this.running = state.isRunning();
+        if (state.getPipeInput() != null) {
+            this.pipeInput = new HashMap<>(state.getPipeInput());
+        }
+        if (state.getPendingInputs() != null) {
+            this.expectedNotificationsSubjects = new HashSet<>(state.getPendingInputs());
+        }
+        fireReadinessChange();
+    }
+
+    public abstract String getExecutableId();
+
     public boolean canExecute() {
         return expectedNotificationsSubjects.isEmpty() && !running;
     }
 
+    public void setRunning(boolean running) {
+        this.running = running;
+        fireReadinessChange();
+    }
+
+    void setReadinessListener(ReadinessListener readinessListener) {
+        this.readinessListener = readinessListener;
+    }
+
+    private void fireReadinessChange() {
+        if (readinessListener != null) {
+            readinessListener.onReadinessChange(this);
+        }
+    }
+
     @Override
     public void notify(RuntimeNode node) {
         String parameterName = upstreamNodeToParameterSpec.get(node.getName());
         List<String> values = node.getValue().getParts().stream()
                 .map(part -> part.getValue())
                 .collect(Collectors.toList());
-        pipeInput.put(parameterName, values.size() > 1 ? values : values.get(0));
-        expectedNotificationsSubjects.remove(node.getName());
+        // A foreach over an empty list passes on a value without parts, which its consumers take as an empty list.
+        pipeInput.put(parameterName, values.size() == 1 ? values.get(0) : values);
+        if (expectedNotificationsSubjects.remove(node.getName()) && expectedNotificationsSubjects.isEmpty()) {
+            fireReadinessChange();
+        }
     }
 
     @Override
     public void update(RuntimeDataValue value) {
+        merge(value);
+        notifyObservers();
+    }
+
+    protected void merge(RuntimeDataValue value) {
         Set<RuntimeDataValue.RuntimeDataValuePart> toBeUpdated = value.getParts().stream()
                 .filter(v -> {
                     if (this.value.getParts().contains(v)) {
@@ -64,6 +111,5 @@ public abstract class ExecutablePipeRuntimeNode extends UpdatableRuntimeNode {
                 .collect(Collectors.toSet());
         this.value.getParts().removeAll(toBeUpdated);
         this.value.getParts().addAll(value.getParts());
-        notifyObservers();
     }
 }
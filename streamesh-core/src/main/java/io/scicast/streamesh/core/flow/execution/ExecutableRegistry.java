@@ -0,0 +1,53 @@
+package io.scicast.streamesh.core.flow.execution;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global index of the pipes scheduled by all flow instances, keyed by the id of the task or nested flow instance
+ * executing them, so that execution events reach their runtime node without searching any graph.
+ */
+public class ExecutableRegistry {
+
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> executablesByFlowInstance = new ConcurrentHashMap<>();
+
+    public void register(String executableId, String flowInstanceId, ExecutablePipeRuntimeNode node) {
+        registrations.put(executableId, new Registration(flowInstanceId, node));
+        executablesByFlowInstance.computeIfAbsent(flowInstanceId, id -> ConcurrentHashMap.newKeySet())
+                .add(executableId);
+    }
+
+    public Optional<Registration> lookup(String executableId) {
+        return Optional.ofNullable(registrations.get(executableId));
+    }
+
+    public void unregister(String executableId) {
+        Registration registration = registrations.remove(executableId);
+        if (registration != null) {
+            executablesByFlowInstance.computeIfPresent(registration.getFlowInstanceId(), (id, executables) -> {
+                executables.remove(executableId);
+                return executables.isEmpty() ? null : executables;
+            });
+        }
+    }
+
+    public void unregisterFlowInstance(String flowInstanceId) {
+        Set<String> executables = executablesByFlowInstance.remove(flowInstanceId);
+        if (executables != null) {
+            executables.forEach(registrations::remove);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Registration {
+        private final String flowInstanceId;
+        private final ExecutablePipeRuntimeNode node;
+    }
+}
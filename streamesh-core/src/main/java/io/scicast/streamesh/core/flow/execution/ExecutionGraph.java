@@ -1,71 +1,131 @@
 package io.scicast.streamesh.core.flow.execution;
 
+import io.scicast.streamesh.core.flow.FlowDefinition;
 import io.scicast.streamesh.core.flow.FlowGraph;
-import lombok.Getter;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * Runtime counterpart of a {@link FlowGraph}. Nodes are indexed by name and by type when they are added, and
+ * executable nodes report every change in their readiness, so that the set of nodes ready to run is kept up to date
+ * incrementally instead of being recomputed from the whole graph after each event.
+ */
 public class ExecutionGraph {
 
-
-    @Getter
-    private Set<RuntimeNode> nodes = new HashSet<>();
-    private RuntimeNodeFactory factory = new RuntimeNodeFactory();
+    private final Map<String, RuntimeNode> nodesByName = new LinkedHashMap<>();
+    private final Set<FlowParameterRuntimeNode> inputNodes = new LinkedHashSet<>();
+    private final Set<FlowOutputRuntimeNode> outputNodes = new LinkedHashSet<>();
+    private final Set<PipeInputRuntimeNode> pipeInputNodes = new LinkedHashSet<>();
+    private final Set<ExecutablePipeRuntimeNode> readyNodes = ConcurrentHashMap.newKeySet();
+    private final Map<String, ExecutablePipeRuntimeNode> scheduledNodes = new ConcurrentHashMap<>();
+    private final ReadinessListener readinessListener = this::onReadinessChange;
 
     public ExecutionGraph(FlowGraph staticGraph) {
-        staticGraph.getNodes().forEach(flowNode -> {
-            nodes.add(factory.create(flowNode));
-        });
+        this(ExecutionPlan.compile(staticGraph));
+    }
 
-        staticGraph.getNodes().forEach(node -> {
-            RuntimeNode runtimeNode = getNode(node.getName());
-            node.getOutgoingLinks().forEach(edge -> {
-                runtimeNode.addObserver(getNode(edge.getDestination().getName()));
-            });
-        });
+    public ExecutionGraph(ExecutionPlan plan) {
+        RuntimeNode[] runtimeNodes = new RuntimeNode[plan.size()];
+        for (int i = 0; i < runtimeNodes.length; i++) {
+            runtimeNodes[i] = plan.createNode(i);
+            addNode(runtimeNodes[i]);
+        }
+        for (int i = 0; i < runtimeNodes.length; i++) {
+            for (int observer : plan.getObservers(i)) {
+                runtimeNodes[i].addObserver(runtimeNodes[observer]);
+            }
+        }
+    }
 
+    public static ExecutionGraph of(FlowDefinition definition) {
+        return definition.getPlan() != null
+                ? new ExecutionGraph(definition.getPlan())
+                : new ExecutionGraph(definition.getGraph());
     }
 
     public RuntimeNode getNode(String name) {
-        return nodes.stream()
-                .filter(node -> node.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        return nodesByName.get(name);
+    }
+
+    public Collection<RuntimeNode> getNodes() {
+        return Collections.unmodifiableCollection(nodesByName.values());
+    }
+
+    public Set<RuntimeNodeState> captureState() {
+        return nodesByName.values().stream()
+                .map(RuntimeNode::captureState)
+                .collect(Collectors.toSet());
+    }
+
+    public void restoreState(Collection<RuntimeNodeState> states) {
+        states.forEach(state -> {
+            RuntimeNode node = getNode(state.getName());
+            if (node != null) {
+                node.restoreState(state);
+                if (node instanceof ExecutablePipeRuntimeNode && state.getExecutableId() != null) {
+                    registerExecutable(state.getExecutableId(), (ExecutablePipeRuntimeNode) node);
+                }
+                if (state.getElementTasks() != null) {
+                    state.getElementTasks().keySet()
+                            .forEach(taskId -> registerExecutable(taskId, (ExecutablePipeRuntimeNode) node));
+                }
+            }
+        });
     }
 
     public void addNode(RuntimeNode node) {
-        nodes.add(node);
+        nodesByName.put(node.getName(), node);
+        if (node instanceof FlowParameterRuntimeNode) {
+            inputNodes.add((FlowParameterRuntimeNode) node);
+        } else if (node instanceof FlowOutputRuntimeNode) {
+            outputNodes.add((FlowOutputRuntimeNode) node);
+        } else if (node instanceof PipeInputRuntimeNode) {
+            pipeInputNodes.add((PipeInputRuntimeNode) node);
+        } else if (node instanceof ExecutablePipeRuntimeNode) {
+            ExecutablePipeRuntimeNode executableNode = (ExecutablePipeRuntimeNode) node;
+            executableNode.setReadinessListener(readinessListener);
+            onReadinessChange(executableNode);
+        }
+    }
+
+    private void onReadinessChange(ExecutablePipeRuntimeNode node) {
+        if (node.canExecute()) {
+            readyNodes.add(node);
+        } else {
+            readyNodes.remove(node);
+        }
+    }
+
+    public void registerExecutable(String executableId, ExecutablePipeRuntimeNode node) {
+        scheduledNodes.put(executableId, node);
+    }
+
+    public ExecutablePipeRuntimeNode getExecutableNode(String executableId) {
+        return scheduledNodes.get(executableId);
+    }
+
+    public Collection<ExecutablePipeRuntimeNode> getScheduledNodes() {
+        // Fanned out pipes are registered once per task.
+        return Collections.unmodifiableCollection(new LinkedHashSet<>(scheduledNodes.values()));
     }
 
     public Set<ExecutablePipeRuntimeNode> getExecutableNodes() {
-        return nodes.stream()
-                .filter(node -> node instanceof ExecutablePipeRuntimeNode)
-                .map(node -> (ExecutablePipeRuntimeNode) node)
-                .filter(node -> node.canExecute())
-                .collect(Collectors.toSet());
+        // A copy, since scheduling the returned nodes takes them out of the ready set.
+        return new HashSet<>(readyNodes);
     }
 
     public Set<FlowParameterRuntimeNode> getInputNodes() {
-        return nodes.stream()
-                .filter(node -> node instanceof FlowParameterRuntimeNode)
-                .map(node -> (FlowParameterRuntimeNode) node)
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(inputNodes);
     }
 
     public Set<FlowOutputRuntimeNode> getOutputNodes() {
-        return nodes.stream()
-                .filter(node -> node instanceof FlowOutputRuntimeNode)
-                .map(node -> (FlowOutputRuntimeNode) node)
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(outputNodes);
     }
 
     public Set<PipeInputRuntimeNode> getPipeInputNodes() {
-        return nodes.stream()
-                .filter(node -> node instanceof PipeInputRuntimeNode)
-                .map(node -> (PipeInputRuntimeNode) node)
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(pipeInputNodes);
     }
 
 }
@@ -20,7 +20,7 @@ public abstract class ExecutionOutputRuntimeNode extends RuntimeNode {
         Set<RuntimeDataValue.RuntimeDataValuePart> parts = node.getValue().getParts().stream()
                 .filter(p -> p.getRefName() != null && p.getRefName().equals(outputName))
                 .collect(Collectors.toSet());
-        if (!parts.isEmpty()) {
+        if (!parts.isEmpty() || node.getValue().getParts().isEmpty()) {
             value = RuntimeDataValue.builder()
                     .parts(parts)
                     .build();
@@ -0,0 +1,57 @@
+package io.scicast.streamesh.core.flow.execution;
+
+import io.scicast.streamesh.core.flow.FlowGraph;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable, array-indexed form of a {@link FlowGraph}, compiled once per flow definition. The runtime node type of
+ * every static node and the observer links between nodes are resolved up front, so that building the execution graph
+ * of a new flow instance needs no lookup by node type or name. The plan holds no instance state: every instance still
+ * builds one runtime node per static node, which keeps the state of that node for the instance.
+ */
+public class ExecutionPlan {
+
+    private static final RuntimeNodeFactory FACTORY = new RuntimeNodeFactory();
+
+    private final FlowGraph.FlowNode[] nodes;
+    private final List<Function<FlowGraph.FlowNode, RuntimeNode>> constructors;
+    private final int[][] observers;
+
+    private ExecutionPlan(FlowGraph.FlowNode[] nodes, List<Function<FlowGraph.FlowNode, RuntimeNode>> constructors,
+                          int[][] observers) {
+        this.nodes = nodes;
+        this.constructors = constructors;
+        this.observers = observers;
+    }
+
+    public static ExecutionPlan compile(FlowGraph graph) {
+        FlowGraph.FlowNode[] nodes = graph.getNodes().toArray(new FlowGraph.FlowNode[0]);
+        Map<String, Integer> indexes = new HashMap<>();
+        List<Function<FlowGraph.FlowNode, RuntimeNode>> constructors = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            indexes.put(nodes[i].getName(), i);
+            constructors.add(FACTORY.resolve(nodes[i]));
+        }
+        int[][] observers = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            observers[i] = nodes[i].getOutgoingLinks().stream()
+                    .mapToInt(edge -> indexes.get(edge.getDestination().getName()))
+                    .toArray();
+        }
+        return new ExecutionPlan(nodes, Collections.unmodifiableList(constructors), observers);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    RuntimeNode createNode(int index) {
+        return constructors.get(index).apply(nodes[index]);
+    }
+
+    int[] getObservers(int index) {
+        return observers[index];
+    }
+}
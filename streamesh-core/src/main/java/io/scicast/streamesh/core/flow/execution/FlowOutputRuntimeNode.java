@@ -31,11 +31,25 @@ public class FlowOutputRuntimeNode extends RuntimeNode {
                             .refName(outputName)
                             .build())
                 .collect(Collectors.toSet());
-        if (!parts.isEmpty()) {
-            value = RuntimeDataValue.builder()
-                    .parts(parts)
-                    .build();
-            notifyObservers();
-        }
+        value = RuntimeDataValue.builder()
+                .parts(parts)
+                .build();
+        notifyObservers();
+    }
+
+    @Override
+    public RuntimeNodeState captureState() {
+        return super.captureState().withOutputAlreadyConsumed(outputAlreadyConsumed);
+    }
+
+    @Override
+    public void restoreState(RuntimeNodeState state) {
+        super.restoreState(state);
+        this.outputAlreadyConsumed = state.isOutputAlreadyConsumed();
+    }
+
+    public boolean isComplete() {
+        return value != null && value.getParts().stream()
+                .allMatch(p -> p.getState().equals(RuntimeDataValue.DataState.COMPLETE));
     }
 }
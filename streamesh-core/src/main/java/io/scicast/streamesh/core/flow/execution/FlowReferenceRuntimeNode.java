@@ -22,4 +22,20 @@ public class FlowReferenceRuntimeNode extends ExecutablePipeRuntimeNode {
         value = RuntimeDataValue.builder().build();
     }
 
+    @Override
+    public String getExecutableId() {
+        return instanceId;
+    }
+
+    @Override
+    public RuntimeNodeState captureState() {
+        return super.captureState().withExecutableId(instanceId);
+    }
+
+    @Override
+    public void restoreState(RuntimeNodeState state) {
+        super.restoreState(state);
+        this.instanceId = state.getExecutableId();
+    }
+
 }
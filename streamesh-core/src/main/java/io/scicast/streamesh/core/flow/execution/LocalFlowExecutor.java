@@ -1,6 +1,7 @@
 package io.scicast.streamesh.core.flow.execution;
 
 import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.concurrent.SerialExecutor;
 import io.scicast.streamesh.core.exception.InvalidCmdParameterException;
 import io.scicast.streamesh.core.exception.MissingParameterException;
 import io.scicast.streamesh.core.flow.FlowDefinition;
@@ -10,14 +11,14 @@ import io.scicast.streamesh.core.flow.FlowParameter;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -27,15 +28,34 @@ import java.util.stream.Stream;
 @Getter
 public class LocalFlowExecutor implements FlowExecutor {
 
+    private static final Set<TaskDescriptor.TaskStatus> TERMINAL_TASK_STATUSES = EnumSet.of(
+            TaskDescriptor.TaskStatus.COMPLETE,
+            TaskDescriptor.TaskStatus.FAILED,
+            TaskDescriptor.TaskStatus.KILLED);
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     private final StreameshContext context;
     private String flowInstanceId;
+    private ExecutionGraph runtimeGraph;
     private Consumer<FlowExecutionEvent<?>> upstreamFlowHandler;
+    private volatile boolean outputsComplete;
+    private SerialExecutor mailbox;
 
     @Override
     public FlowInstance execute(FlowDefinition flow, String flowInstanceId, Map<?, ?> input, Consumer<FlowExecutionEvent<?>> eventHandler) {
-        ExecutionGraph runtimeGraph = new ExecutionGraph(flow.getGraph());
+        // Events of this instance are handled one at a time on the engine threads. They are held back until the
+        // instance is initialised, as tasks scheduled below may report back before this method returns.
+        mailbox = SerialExecutor.suspended(context.getExecutionEngine());
+        try {
+            return start(flow, flowInstanceId, input, eventHandler);
+        } finally {
+            mailbox.resume();
+        }
+    }
+
+    private FlowInstance start(FlowDefinition flow, String flowInstanceId, Map<?, ?> input, Consumer<FlowExecutionEvent<?>> eventHandler) {
+        runtimeGraph = ExecutionGraph.of(flow);
         this.upstreamFlowHandler = eventHandler;
         this.flowInstanceId = flowInstanceId;
 
@@ -47,34 +67,33 @@ public class LocalFlowExecutor implements FlowExecutor {
                 .started(LocalDateTime.now())
                 .status(FlowInstance.FlowInstanceStatus.LAUNCHING)
                 .build();
+        runtimeGraph.getOutputNodes().forEach(node -> node.addObserver(this::onFlowOutputUpdate));
         context.getStore().storeFlowInstance(instance);
         init(runtimeGraph, input);
-        instance = instance.withStatus(FlowInstance.FlowInstanceStatus.RUNNING);
-
-        ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
-        scheduledExecutorService.scheduleAtFixedRate(() -> {
-            try {
-                FlowInstance flowInstance = context.getStore().getFlowInstance(flowInstanceId);
-                if (allDone(flowInstance)) {
-                    flowInstance = flowInstance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE)
-                            .withCompleted(LocalDateTime.now());
-                    context.getStore().storeFlowInstance(flowInstance);
-                    scheduledExecutorService.shutdownNow();
-                }
-            } catch (Exception e) {
-                logger.warning(String.format("A fault occurred while checking for the termination of flow instance %s: %s",
-                        flowInstanceId, e.getMessage()));
-            }
-        }, 5000, 2000, TimeUnit.MILLISECONDS);
+        outputsComplete = allDone(runtimeGraph);
+        instance = updateCompletionStatus(instance.withStatus(FlowInstance.FlowInstanceStatus.RUNNING));
 
         context.getStore().storeFlowInstance(instance);
         return instance;
     }
 
-    private boolean allDone(FlowInstance instance) {
-        return instance.getExecutionGraph().getOutputNodes().stream()
-                .allMatch(node -> node.getValue() != null && node.getValue().getParts().stream()
-                        .allMatch(p -> p.getState().equals(RuntimeDataValue.DataState.COMPLETE)));
+    private void onFlowOutputUpdate(RuntimeNode node) {
+        outputsComplete = ((FlowOutputRuntimeNode) node).isComplete() && allDone(runtimeGraph);
+    }
+
+    private FlowInstance updateCompletionStatus(FlowInstance instance) {
+        if (outputsComplete && !instance.getStatus().equals(FlowInstance.FlowInstanceStatus.COMPLETE)
+                && !instance.getStatus().equals(FlowInstance.FlowInstanceStatus.FAILED)
+                && !instance.getStatus().equals(FlowInstance.FlowInstanceStatus.KILLED)) {
+            return instance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE)
+                    .withCompleted(LocalDateTime.now());
+        }
+        return instance;
+    }
+
+    private boolean allDone(ExecutionGraph runtimeGraph) {
+        return runtimeGraph.getOutputNodes().stream()
+                .allMatch(node -> node.isComplete());
     }
 
     private void init(ExecutionGraph runtimeGraph, Map<?, ?> input) {
@@ -113,53 +132,49 @@ public class LocalFlowExecutor implements FlowExecutor {
 
     private void executeNodes(Set<ExecutablePipeRuntimeNode> executableNodes) {
         StreameshOrchestrator orchestrator = context.getOrchestrator();
+        AtomicBoolean gathered = new AtomicBoolean();
 
         executableNodes.forEach(node -> {
             node.setRunning(true);
+            if (node instanceof MicroPipeRuntimeNode && ((MicroPipeRuntimeNode) node).isFanOut()) {
+                if (((MicroPipeRuntimeNode) node).gatherIfEmpty()) {
+                    gathered.set(true);
+                } else {
+                    launchElementTasks((MicroPipeRuntimeNode) node);
+                }
+                return;
+            }
             String executableId = node.getName() + "-" + UUID.randomUUID().toString();
+            runtimeGraph.registerExecutable(executableId, node);
+            context.getExecutableRegistry().register(executableId, flowInstanceId, node);
             if (node instanceof MicroPipeRuntimeNode) {
                 ((MicroPipeRuntimeNode) node).setTaskId(executableId);
-                orchestrator.scheduleTask(node.getDefinitionId(), executableId, node.getPipeInput(), this::onTaskExecutionEvent);
-                createTaskOutputListeners(executableId, node.getStaticGraphNode());
+                orchestrator.scheduleTask(node.getDefinitionId(), executableId, flowInstanceId, node.getPipeInput(),
+                        ((MicroPipeRuntimeNode) node).getInputTransports(),
+                        event -> mailbox.execute(() -> onTaskExecutionEvent(event)));
             } else if (node instanceof FlowReferenceRuntimeNode) {
                 ((FlowReferenceRuntimeNode) node).setInstanceId(executableId);
-                orchestrator.scheduleFlow(node.getDefinitionId(), executableId, node.getPipeInput(), this::onFlowExecutionEvent);
+                orchestrator.scheduleFlow(node.getDefinitionId(), executableId, node.getPipeInput(),
+                        event -> mailbox.execute(() -> onFlowExecutionEvent(event)));
             }
         });
+        if (gathered.get()) {
+            // Nodes gathered without running any task may have made their downstream nodes ready.
+            executeNodes(runtimeGraph.getExecutableNodes());
+        }
     }
 
-    private void createTaskOutputListeners(String executableId, FlowGraph.FlowNode staticGraphNode) {
-        MicroPipe microPipe = (MicroPipe) staticGraphNode.getValue();
-        ExecutorService svc = Executors.newFixedThreadPool(microPipe.getOutputMapping().size());
-        for (TaskOutput output : microPipe.getOutputMapping()) {
-            Runnable outputListener = () -> {
-                InputStream taskOutputStream = context.getOrchestrator().getTaskOutput(executableId, output.getName());
-                try {
-                    logger.info(String.format("Waiting to read from %s.", output.getName()));
-                    taskOutputStream.read(new byte[16]);
-                    logger.info(String.format("Read from %s.", output.getName()));
-                    taskOutputStream.close();
-                    this.onTaskExecutionEvent(TaskExecutionEvent.builder()
-                            .type(TaskExecutionEvent.EventType.OUTPUT_AVAILABILITY)
-                            .descriptor(OutputAvailabilityDescriptor.builder()
-                                    .executableId(executableId)
-                                    .runtimeDataValue(RuntimeDataValue.builder()
-                                            .parts(Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
-                                                    .refName(output.getName())
-                                                    .state(RuntimeDataValue.DataState.FLOWING)
-                                                    .value(context.getServerInfo().getBaseUrl() + "/tasks/" + executableId + "/" + output.getName())
-                                                    .build())
-                                                    .collect(Collectors.toSet()))
-                                            .build())
-                                    .build())
-                            .build());
-                } catch (IOException e) {
-                    logger.severe(String.format("Could not read data from output %s produced by task %s", output.getName(), executableId));
-                }
-            };
-            svc.submit(outputListener);
+    private void launchElementTasks(MicroPipeRuntimeNode node) {
+        Optional<Map<String, Object>> input;
+        while ((input = node.nextElementInput()).isPresent()) {
+            String executableId = node.getName() + "-" + UUID.randomUUID().toString();
+            runtimeGraph.registerExecutable(executableId, node);
+            context.getExecutableRegistry().register(executableId, flowInstanceId, node);
+            node.addElementTask(executableId);
+            context.getOrchestrator().scheduleTask(node.getDefinitionId(), executableId, flowInstanceId, input.get(),
+                    node.getInputTransports(),
+                    event -> mailbox.execute(() -> onTaskExecutionEvent(event)));
         }
-
     }
 
     private void onFlowExecutionEvent(FlowExecutionEvent<?> event) {
@@ -167,7 +182,7 @@ public class LocalFlowExecutor implements FlowExecutor {
         FlowInstance instance = context.getStore().getFlowInstance(flowInstanceId);
         if (event.getType().equals(FlowExecutionEvent.EventType.OUTPUT_AVAILABILITY)) {
             OutputAvailabilityDescriptor descriptor = (OutputAvailabilityDescriptor) event.getDescriptor();
-            FlowReferenceRuntimeNode targetNode = getTargetFlowReferenceNode(instance, descriptor);
+            FlowReferenceRuntimeNode targetNode = getTargetNode(instance, descriptor.getExecutableId());
             targetNode.update(descriptor.getRuntimeDataValue());
             stateUpdated = true;
         }
@@ -175,22 +190,17 @@ public class LocalFlowExecutor implements FlowExecutor {
         if (stateUpdated) {
             executeNodes(instance.getExecutionGraph().getExecutableNodes());
             checkFlowOutput(instance.getExecutionGraph().getOutputNodes());
-//            if (allDone(instance)) {
-//                instance = instance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE)
-//                        .withCompleted(LocalDateTime.now());
-//            }
+            instance = updateCompletionStatus(instance);
             context.getStore().storeFlowInstance(instance);
         }
 
     }
 
-    private FlowReferenceRuntimeNode getTargetFlowReferenceNode(FlowInstance instance, OutputAvailabilityDescriptor descriptor) {
-        return instance.getExecutionGraph().getNodes().stream()
-                .filter(node -> node instanceof FlowReferenceRuntimeNode)
-                .map(node -> (FlowReferenceRuntimeNode) node)
-                .filter(node -> descriptor.getExecutableId().equals(node.getInstanceId()))
-                .findFirst()
-                .orElse(null);
+    @SuppressWarnings("unchecked")
+    private <T extends ExecutablePipeRuntimeNode> T getTargetNode(FlowInstance instance, String executableId) {
+        return (T) context.getExecutableRegistry().lookup(executableId)
+                .map(ExecutableRegistry.Registration::getNode)
+                .orElseGet(() -> instance.getExecutionGraph().getExecutableNode(executableId));
     }
 
     private void onTaskExecutionEvent(TaskExecutionEvent<?> event) {
@@ -198,38 +208,82 @@ public class LocalFlowExecutor implements FlowExecutor {
         FlowInstance instance = context.getStore().getFlowInstance(flowInstanceId);
         if (event.getType().equals(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)) {
             TaskDescriptor descriptor = (TaskDescriptor) event.getDescriptor();
+            MicroPipeRuntimeNode targetNode = getTargetNode(instance, descriptor.getId());
+            if (targetNode.isFanOut() && TERMINAL_TASK_STATUSES.contains(descriptor.getStatus())) {
+                targetNode.elementTerminated(descriptor.getId(), descriptor.getStatus());
+            }
             if (descriptor.getStatus().equals(TaskDescriptor.TaskStatus.COMPLETE)) {
-                MicroPipeRuntimeNode targetNode = getTargetMicroPipeNode(instance, descriptor.getId());
                 updateTargetNode(descriptor, targetNode);
                 stateUpdated = true;
             }
+            if (TERMINAL_TASK_STATUSES.contains(descriptor.getStatus())) {
+                context.getExecutableRegistry().unregister(descriptor.getId());
+                if (targetNode.isFailed()) {
+                    failFlowInstance(instance, targetNode);
+                    return;
+                }
+                if (targetNode.isFanOut()) {
+                    launchElementTasks(targetNode);
+                    stateUpdated = true;
+                }
+            }
         } else {
-            OutputAvailabilityDescriptor descriptor = (OutputAvailabilityDescriptor) event.getDescriptor();
-            MicroPipeRuntimeNode targetNode = getTargetMicroPipeNode(instance, descriptor.getExecutableId());
-            targetNode.update(descriptor.getRuntimeDataValue());
+            TaskOutputDescriptor descriptor = (TaskOutputDescriptor) event.getDescriptor();
+            logger.info(String.format("Output %s of task %s is available.", descriptor.getOutputName(), descriptor.getTaskId()));
+            MicroPipeRuntimeNode targetNode = getTargetNode(instance, descriptor.getTaskId());
+            String url = context.getServerInfo().getBaseUrl() + "/tasks/" + descriptor.getTaskId() + "/" + descriptor.getOutputName();
+            RuntimeDataValue.DataState state = RuntimeDataValue.DataState.FLOWING;
+            if (descriptor.getPartName() != null) {
+                url = url + "/parts/" + descriptor.getPartName();
+                // Late parts may be reported once the task is known to be complete, as the last scan of the output
+                // directory happens when the container stops.
+                TaskDescriptor task = context.getStore().getTaskById(descriptor.getTaskId());
+                if (TaskDescriptor.TaskStatus.COMPLETE.equals(task.getStatus())) {
+                    state = RuntimeDataValue.DataState.COMPLETE;
+                }
+            }
+            targetNode.update(RuntimeDataValue.builder()
+                    .parts(Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
+                            .refName(descriptor.getOutputName())
+                            .state(state)
+                            .value(url)
+                            .build())
+                            .collect(Collectors.toSet()))
+                    .build());
             stateUpdated = true;
         }
 
         if (stateUpdated) {
             executeNodes(instance.getExecutionGraph().getExecutableNodes());
             checkFlowOutput(instance.getExecutionGraph().getOutputNodes());
-//            if (allDone(instance)) {
-//                instance = instance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE)
-//                        .withCompleted(LocalDateTime.now());
-//            }
+            instance = updateCompletionStatus(instance);
             context.getStore().storeFlowInstance(instance);
         }
 
     }
 
+    private void failFlowInstance(FlowInstance instance, MicroPipeRuntimeNode failedNode) {
+        if (!FlowInstance.FlowInstanceStatus.RUNNING.equals(instance.getStatus())) {
+            // Already failed, or killed along with the tasks reporting their termination.
+            return;
+        }
+        logger.warning(String.format("A task of node %s did not complete, failing flow instance %s.",
+                failedNode.getName(), flowInstanceId));
+        failedNode.getTaskIds().forEach(context.getOrchestrator()::killTask);
+        context.getStore().storeFlowInstance(instance.withStatus(FlowInstance.FlowInstanceStatus.FAILED)
+                .withCompleted(LocalDateTime.now()));
+    }
+
     private void updateTargetNode(TaskDescriptor descriptor, MicroPipeRuntimeNode targetNode) {
         Set<RuntimeDataValue.RuntimeDataValuePart> parts = ((MicroPipe) targetNode.getStaticGraphNode().getValue())
                 .getOutputMapping().stream()
-                .map(taskOutput -> RuntimeDataValue.RuntimeDataValuePart.builder()
-                        .refName(taskOutput.getName())
-                        .state(RuntimeDataValue.DataState.COMPLETE)
-                        .value(context.getServerInfo().getBaseUrl() + "/tasks/" + descriptor.getId() + "/" + taskOutput.getName())
-                        .build())
+                .flatMap(taskOutput -> taskOutput.isMultipart()
+                        ? completeParts(targetNode, descriptor.getId(), taskOutput.getName())
+                        : Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
+                            .refName(taskOutput.getName())
+                            .state(RuntimeDataValue.DataState.COMPLETE)
+                            .value(context.getServerInfo().getBaseUrl() + "/tasks/" + descriptor.getId() + "/" + taskOutput.getName())
+                            .build()))
                 .collect(Collectors.toSet());
 
         targetNode.update(RuntimeDataValue.builder()
@@ -237,13 +291,17 @@ public class LocalFlowExecutor implements FlowExecutor {
                 .build());
     }
 
-    private MicroPipeRuntimeNode getTargetMicroPipeNode(FlowInstance instance, String taskId) {
-        return instance.getExecutionGraph().getNodes().stream()
-                .filter(n -> n instanceof MicroPipeRuntimeNode)
-                .map(n -> (MicroPipeRuntimeNode) n)
-                .filter(n -> taskId.equals(n.getTaskId()))
-                .findFirst()
-                .orElse(null);
+    private Stream<RuntimeDataValue.RuntimeDataValuePart> completeParts(MicroPipeRuntimeNode node, String taskId,
+                                                                        String outputName) {
+        // The driver reports all the parts of a multipart output before the task completes.
+        String taskUrl = context.getServerInfo().getBaseUrl() + "/tasks/" + taskId + "/";
+        return node.getValue().getParts().stream()
+                .filter(part -> outputName.equals(part.getRefName()) && part.getValue().startsWith(taskUrl))
+                .map(part -> RuntimeDataValue.RuntimeDataValuePart.builder()
+                        .refName(outputName)
+                        .state(RuntimeDataValue.DataState.COMPLETE)
+                        .value(part.getValue())
+                        .build());
     }
 
     private RuntimeDataValue buildRuntimeDataValue(FlowParameter parameterSpec, Object o) {
@@ -1,24 +1,158 @@
 package io.scicast.streamesh.core.flow.execution;
 
+import io.scicast.streamesh.core.DataTransport;
 import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.TaskDescriptor;
 import io.scicast.streamesh.core.TaskParameter;
 import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowPipe;
+import io.scicast.streamesh.core.flow.PipeInput;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.*;
+
+/**
+ * Runtime node of a micropipe. A pipe declaring a foreach input fans out into one task per value of that input, at
+ * most as many running at the same time as its parallelism allows. The outputs of the tasks are gathered in the
+ * value of the node, which is only passed on once every task has completed. The node fails as soon as one of its
+ * tasks ends without completing.
+ */
 public class MicroPipeRuntimeNode extends ExecutablePipeRuntimeNode {
 
     @Getter
     @Setter
     private String taskId;
 
+    @Getter
+    private Map<String, DataTransport> inputTransports = new HashMap<>();
+
+    @Getter
+    private final String foreach;
+    private final int parallelism;
+    private Map<String, Integer> elementTasks = new LinkedHashMap<>();
+    private Map<String, TaskDescriptor.TaskStatus> terminatedTasks = new HashMap<>();
+
     public MicroPipeRuntimeNode(FlowGraph.FlowNode flowNode) {
         super(flowNode);
         definitionId = ((MicroPipe) flowNode.getValue()).getId();
         flowNode.getIncomingLinks().stream().map(edge -> edge.getSource()).forEach(node -> {
-            upstreamNodeToParameterSpec.put(node.getName(), ((TaskParameter) node.getValue()).getName());
+            String parameterName = ((TaskParameter) node.getValue()).getName();
+            upstreamNodeToParameterSpec.put(node.getName(), parameterName);
+            node.getIncomingLinks().stream()
+                    .map(edge -> edge.getSource().getValue())
+                    .filter(value -> value instanceof PipeInput && ((PipeInput) value).getTransport() != null)
+                    .forEach(value -> inputTransports.put(parameterName, ((PipeInput) value).getTransport()));
         });
+        FlowPipe pipe = flowNode.getPipe();
+        foreach = pipe != null ? pipe.getForeach() : null;
+        parallelism = pipe != null ? pipe.getParallelism() : 0;
         value = RuntimeDataValue.builder().build();
     }
 
+    @Override
+    public String getExecutableId() {
+        return taskId;
+    }
+
+    public boolean isFanOut() {
+        return foreach != null;
+    }
+
+    /**
+     * Ids of the tasks that may still be running on behalf of this node.
+     */
+    public Collection<String> getTaskIds() {
+        if (!isFanOut()) {
+            return taskId != null ? Collections.singleton(taskId) : Collections.emptySet();
+        }
+        Set<String> running = new LinkedHashSet<>(elementTasks.keySet());
+        running.removeAll(terminatedTasks.keySet());
+        return running;
+    }
+
+    /**
+     * Input of the next task to launch, or nothing when all values are handled or the parallelism is reached.
+     */
+    public Optional<Map<String, Object>> nextElementInput() {
+        if (isFailed()) {
+            return Optional.empty();
+        }
+        List<?> elements = getElements();
+        int running = elementTasks.size() - terminatedTasks.size();
+        if (elementTasks.size() >= elements.size() || (parallelism > 0 && running >= parallelism)) {
+            return Optional.empty();
+        }
+        Map<String, Object> input = new HashMap<>(pipeInput);
+        input.put(foreach, elements.get(elementTasks.size()));
+        return Optional.of(input);
+    }
+
+    public void addElementTask(String elementTaskId) {
+        elementTasks.put(elementTaskId, elementTasks.size());
+    }
+
+    public void elementTerminated(String elementTaskId, TaskDescriptor.TaskStatus status) {
+        if (elementTasks.containsKey(elementTaskId)) {
+            terminatedTasks.put(elementTaskId, status);
+        }
+    }
+
+    /**
+     * Passes on an empty value straight away when there are no values to run tasks for.
+     */
+    public boolean gatherIfEmpty() {
+        if (!isFanOut() || !getElements().isEmpty()) {
+            return false;
+        }
+        update(RuntimeDataValue.builder().build());
+        return true;
+    }
+
+    public boolean isFailed() {
+        return terminatedTasks.values().stream().anyMatch(status -> !TaskDescriptor.TaskStatus.COMPLETE.equals(status));
+    }
+
+    @Override
+    public void update(RuntimeDataValue value) {
+        merge(value);
+        if (!isFanOut() || isGathered()) {
+            notifyObservers();
+        }
+    }
+
+    private boolean isGathered() {
+        return elementTasks.size() == getElements().size()
+                && terminatedTasks.size() == elementTasks.size()
+                && !isFailed();
+    }
+
+    private List<?> getElements() {
+        Object elements = pipeInput.get(foreach);
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+        return elements instanceof List ? (List<?>) elements : Collections.singletonList(elements);
+    }
+
+    @Override
+    public RuntimeNodeState captureState() {
+        return super.captureState()
+                .withExecutableId(taskId)
+                .withElementTasks(new LinkedHashMap<>(elementTasks))
+                .withTerminatedTasks(new HashMap<>(terminatedTasks));
+    }
+
+    @Override
+    public void restoreState(RuntimeNodeState state) {
+        super.restoreState(state);
+        this.taskId = state.getExecutableId();
+        if (state.getElementTasks() != null) {
+            this.elementTasks = new LinkedHashMap<>(state.getElementTasks());
+        }
+        if (state.getTerminatedTasks() != null) {
+            this.terminatedTasks = new HashMap<>(state.getTerminatedTasks());
+        }
+    }
+
 }
@@ -0,0 +1,7 @@
+package io.scicast.streamesh.core.flow.execution;
+
+public interface ReadinessListener {
+
+    void onReadinessChange(ExecutablePipeRuntimeNode node);
+
+}
@@ -1,8 +1,6 @@
 package io.scicast.streamesh.core.flow.execution;
 
-import lombok.Builder;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
+import lombok.*;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -10,6 +8,8 @@ import java.util.Set;
 @Builder
 @Getter
 @EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
 public class RuntimeDataValue {
 
     @Builder.Default
@@ -21,6 +21,8 @@ public class RuntimeDataValue {
     }
     @Builder
     @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
     @EqualsAndHashCode(of = {"refName", "value"})
     public static class RuntimeDataValuePart {
 
@@ -27,4 +27,15 @@ public abstract class RuntimeNode implements NodeObserver {
         observers.forEach(observer -> observer.notify(this));
     }
 
+    public RuntimeNodeState captureState() {
+        return RuntimeNodeState.builder()
+                .name(name)
+                .value(value)
+                .build();
+    }
+
+    public void restoreState(RuntimeNodeState state) {
+        this.value = state.getValue();
+    }
+
 }
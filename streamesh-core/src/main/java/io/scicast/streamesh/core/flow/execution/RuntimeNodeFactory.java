@@ -7,6 +7,7 @@ import io.scicast.streamesh.core.flow.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 public class RuntimeNodeFactory {
@@ -28,11 +29,11 @@ public class RuntimeNodeFactory {
 
 
     public RuntimeNode create(FlowGraph.FlowNode node) {
-        return internalFactories.entrySet().stream()
-            .filter(entry -> entry.getKey().equals(node.getValue().getClass()))
-            .map(entry -> entry.getValue())
-            .findFirst()
-            .map(f -> f.apply(node))
+        return resolve(node).apply(node);
+    }
+
+    public Function<FlowGraph.FlowNode, RuntimeNode> resolve(FlowGraph.FlowNode node) {
+        return Optional.ofNullable(internalFactories.get(node.getValue().getClass()))
             .orElseThrow(() -> new UnsupportedOperationException("Cannot build runtime node for flow nodes of type "
                     + node.getValue().getClass().getName()));
     }
@@ -0,0 +1,26 @@
+package io.scicast.streamesh.core.flow.execution;
+
+import io.scicast.streamesh.core.TaskDescriptor;
+import lombok.*;
+
+import java.util.Map;
+import java.util.Set;
+
+@Builder
+@Getter
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuntimeNodeState {
+
+    private String name;
+    private RuntimeDataValue value;
+    private boolean running;
+    private String executableId;
+    private boolean outputAlreadyConsumed;
+    private Map<String, Object> pipeInput;
+    private Set<String> pendingInputs;
+    private Map<String, Integer> elementTasks;
+    private Map<String, TaskDescriptor.TaskStatus> terminatedTasks;
+
+}
@@ -1,5 +1,6 @@
 package io.scicast.streamesh.core.flow.execution;
 
+import io.scicast.streamesh.core.TaskOutput;
 import io.scicast.streamesh.core.flow.FlowGraph;
 
 import java.util.HashSet;
@@ -23,6 +24,10 @@ public class TaskParameterRuntimeNode extends RuntimeNode {
 
     @Override
     public void notify(RuntimeNode node) {
+        if (isIncompleteMultipartOutput(node)) {
+            // Parts keep appearing until the task completes, the parameter only takes them all at once.
+            return;
+        }
         value = RuntimeDataValue.builder()
                 .parts(Stream.concat(
                         node.getValue().getParts().stream(),
@@ -34,4 +39,11 @@ public class TaskParameterRuntimeNode extends RuntimeNode {
             notifyObservers();
         }
     }
+
+    private boolean isIncompleteMultipartOutput(RuntimeNode node) {
+        Object source = node.getStaticGraphNode().getValue();
+        return source instanceof TaskOutput && ((TaskOutput) source).isMultipart()
+                && node.getValue().getParts().stream()
+                    .anyMatch(part -> !RuntimeDataValue.DataState.COMPLETE.equals(part.getState()));
+    }
 }
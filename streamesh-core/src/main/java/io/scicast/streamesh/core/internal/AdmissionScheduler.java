@@ -0,0 +1,320 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.ResourceQuantity;
+import io.scicast.streamesh.core.TaskPriority;
+import io.scicast.streamesh.core.exception.CapacityExceededException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides when scheduled tasks are handed over to the orchestration driver. At most a global number of tasks run at
+ * any time, and at most the configured number of tasks of each definition. Tasks that cannot run yet are queued by
+ * priority class: higher classes always go first, and within a class the queued tasks of the different flow instances
+ * take turns, so that a flow with a large fan-out does not hold back the other flows.
+ * <p>
+ * When a host capacity is configured, the CPU and memory requested by the running tasks are also accounted for, and
+ * a task is only admitted when its request fits in what is left. The next task in turn that fits is admitted first,
+ * which packs smaller tasks alongside large ones rather than leaving the host idle behind a task that does not fit yet.
+ */
+public class AdmissionScheduler {
+
+    public static final String MAX_RUNNING_PROPERTY = "streamesh.admission.max.running";
+    public static final String MAX_RUNNING_PER_DEFINITION_PROPERTY = "streamesh.admission.max.running.per.definition";
+    public static final String QUEUE_CAPACITY_PROPERTY = "streamesh.admission.queue.capacity";
+    public static final String HOST_CPU_PROPERTY = "streamesh.admission.host.cpu";
+    public static final String HOST_MEMORY_PROPERTY = "streamesh.admission.host.memory";
+
+    private static final int DEFAULT_MAX_RUNNING = 64;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final String STANDALONE_OWNER = "";
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final int maxRunning;
+    private final int maxRunningPerDefinition;
+    private final int queueCapacity;
+    private final double cpuCapacity;
+    private final long memoryCapacity;
+
+    private final Map<TaskPriority, PriorityClass> classes = new EnumMap<>(TaskPriority.class);
+    private final Map<String, Request> queued = new HashMap<>();
+    private final Map<String, Request> running = new HashMap<>();
+    private final Map<String, Integer> runningByDefinition = new HashMap<>();
+
+    private double allocatedCpu;
+    private long allocatedMemory;
+    private long admitted;
+    private long rejected;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+
+    @Builder
+    public AdmissionScheduler(int maxRunning, int maxRunningPerDefinition, int queueCapacity,
+                              double cpuCapacity, long memoryCapacity) {
+        this.maxRunning = maxRunning;
+        this.maxRunningPerDefinition = maxRunningPerDefinition;
+        this.queueCapacity = queueCapacity;
+        this.cpuCapacity = cpuCapacity;
+        this.memoryCapacity = memoryCapacity;
+        Arrays.stream(TaskPriority.values()).forEach(priority -> classes.put(priority, new PriorityClass()));
+    }
+
+    public static AdmissionScheduler fromSystemProperties() {
+        return AdmissionScheduler.builder()
+                .maxRunning(Integer.getInteger(MAX_RUNNING_PROPERTY, DEFAULT_MAX_RUNNING))
+                .maxRunningPerDefinition(Integer.getInteger(MAX_RUNNING_PER_DEFINITION_PROPERTY, 0))
+                .queueCapacity(Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY))
+                .cpuCapacity(Double.parseDouble(System.getProperty(HOST_CPU_PROPERTY,
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))))
+                .memoryCapacity(ResourceQuantity.parseMemory(System.getProperty(HOST_MEMORY_PROPERTY,
+                        String.valueOf(physicalMemory()))))
+                .build();
+    }
+
+    private static long physicalMemory() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+        }
+        return 0;
+    }
+
+    /**
+     * Queues a task and launches every task that can be admitted. Standalone tasks are refused once the queue is
+     * full, which keeps the backlog, and therefore the latency of admitted tasks, bounded under overload. Tasks of
+     * flow instances are always queued, as refusing them would break flows that are already running. Tasks that
+     * request more than the whole host capacity are refused, as they could never be admitted.
+     */
+    public void submit(Request request) {
+        synchronized (this) {
+            if ((cpuCapacity > 0 && request.getCpu() > cpuCapacity)
+                    || (memoryCapacity > 0 && request.getMemoryBytes() > memoryCapacity)) {
+                rejected++;
+                throw new CapacityExceededException(String.format(
+                        "Cannot accept task %s: it requests %s cpu and %s bytes of memory, the host has %s cpu and %s bytes.",
+                        request.getTaskId(), request.getCpu(), request.getMemoryBytes(), cpuCapacity, memoryCapacity));
+            }
+            if (request.getFlowInstanceId() == null && queueCapacity > 0 && queued.size() >= queueCapacity) {
+                rejected++;
+                throw new CapacityExceededException(String.format("Cannot accept task %s: %s tasks are already queued.",
+                        request.getTaskId(), queued.size()));
+            }
+            request.enqueuedAt = System.currentTimeMillis();
+            queued.put(request.getTaskId(), request);
+            classes.get(priorityOf(request)).add(ownerOf(request), request);
+        }
+        dispatch();
+    }
+
+    /**
+     * Removes a task from the queue. Returns false when the task is not queued, that is when it has already been
+     * handed over to the driver.
+     */
+    public boolean cancel(String taskId) {
+        synchronized (this) {
+            Request request = queued.remove(taskId);
+            if (request == null) {
+                return false;
+            }
+            classes.get(priorityOf(request)).remove(ownerOf(request), request);
+        }
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Frees the slot held by a task once it has terminated.
+     */
+    public void release(String taskId) {
+        synchronized (this) {
+            Request request = running.remove(taskId);
+            if (request == null) {
+                return;
+            }
+            runningByDefinition.computeIfPresent(request.getDefinitionId(), (id, count) -> count > 1 ? count - 1 : null);
+            allocatedCpu = running.isEmpty() ? 0 : allocatedCpu - request.getCpu();
+            allocatedMemory -= request.getMemoryBytes();
+        }
+        dispatch();
+    }
+
+    public synchronized Metrics getMetrics() {
+        Map<TaskPriority, Integer> queuedByPriority = new EnumMap<>(TaskPriority.class);
+        classes.forEach((priority, priorityClass) -> queuedByPriority.put(priority, priorityClass.size));
+        long now = System.currentTimeMillis();
+        return Metrics.builder()
+                .running(running.size())
+                .queued(queued.size())
+                .queuedByPriority(queuedByPriority)
+                .admitted(admitted)
+                .rejected(rejected)
+                .allocatedCpu(allocatedCpu)
+                .allocatedMemory(allocatedMemory)
+                .cpuCapacity(cpuCapacity)
+                .memoryCapacity(memoryCapacity)
+                .averageWaitMillis(admitted > 0 ? totalWaitMillis / admitted : 0)
+                .maxWaitMillis(maxWaitMillis)
+                .oldestQueuedMillis(queued.values().stream()
+                        .mapToLong(request -> now - request.enqueuedAt)
+                        .max()
+                        .orElse(0))
+                .build();
+    }
+
+    private void dispatch() {
+        List<Request> admittedRequests = new ArrayList<>();
+        synchronized (this) {
+            Request next;
+            while ((next = next()) != null) {
+                admit(next);
+                admittedRequests.add(next);
+            }
+        }
+        // Launching outside of the lock, as the driver may report back synchronously.
+        admittedRequests.forEach(request -> {
+            try {
+                request.getLaunch().run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, String.format("Could not launch task %s: %s", request.getTaskId(), e.getMessage()), e);
+                release(request.getTaskId());
+            }
+        });
+    }
+
+    private Request next() {
+        if (maxRunning > 0 && running.size() >= maxRunning) {
+            return null;
+        }
+        for (TaskPriority priority : TaskPriority.values()) {
+            Request request = classes.get(priority).poll(this::hasCapacity);
+            if (request != null) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void admit(Request request) {
+        queued.remove(request.getTaskId());
+        running.put(request.getTaskId(), request);
+        runningByDefinition.merge(request.getDefinitionId(), 1, Integer::sum);
+        allocatedCpu += request.getCpu();
+        allocatedMemory += request.getMemoryBytes();
+        long wait = System.currentTimeMillis() - request.enqueuedAt;
+        admitted++;
+        totalWaitMillis += wait;
+        maxWaitMillis = Math.max(maxWaitMillis, wait);
+    }
+
+    private boolean hasCapacity(Request request) {
+        int limit = request.getMaxConcurrency() > 0 ? request.getMaxConcurrency() : maxRunningPerDefinition;
+        if (limit > 0 && runningByDefinition.getOrDefault(request.getDefinitionId(), 0) >= limit) {
+            return false;
+        }
+        return fits(request);
+    }
+
+    private boolean fits(Request request) {
+        // Small tolerance so that fractional cpu requests summing up to the capacity still fit.
+        boolean cpuFits = cpuCapacity <= 0 || allocatedCpu + request.getCpu() <= cpuCapacity + 1e-9;
+        boolean memoryFits = memoryCapacity <= 0 || allocatedMemory + request.getMemoryBytes() <= memoryCapacity;
+        return cpuFits && memoryFits;
+    }
+
+    private TaskPriority priorityOf(Request request) {
+        return request.getPriority() != null ? request.getPriority() : TaskPriority.NORMAL;
+    }
+
+    private String ownerOf(Request request) {
+        return request.getFlowInstanceId() != null ? request.getFlowInstanceId() : STANDALONE_OWNER;
+    }
+
+    private static class PriorityClass {
+
+        private final Map<String, Deque<Request>> queuesByOwner = new HashMap<>();
+        private final Deque<String> owners = new ArrayDeque<>();
+        private int size;
+
+        void add(String owner, Request request) {
+            queuesByOwner.computeIfAbsent(owner, o -> {
+                owners.addLast(o);
+                return new ArrayDeque<>();
+            }).addLast(request);
+            size++;
+        }
+
+        void remove(String owner, Request request) {
+            Deque<Request> queue = queuesByOwner.get(owner);
+            if (queue != null && queue.remove(request)) {
+                size--;
+                if (queue.isEmpty()) {
+                    queuesByOwner.remove(owner);
+                    owners.remove(owner);
+                }
+            }
+        }
+
+        /**
+         * Takes the first admissible task of the next owner in turn. Only the head of the queue of each owner is
+         * considered, so that the tasks of an owner are admitted in order.
+         */
+        Request poll(Predicate<Request> admissible) {
+            for (int i = 0; i < owners.size(); i++) {
+                String owner = owners.pollFirst();
+                Deque<Request> queue = queuesByOwner.get(owner);
+                if (admissible.test(queue.peekFirst())) {
+                    Request request = queue.pollFirst();
+                    size--;
+                    if (queue.isEmpty()) {
+                        queuesByOwner.remove(owner);
+                    } else {
+                        owners.addLast(owner);
+                    }
+                    return request;
+                }
+                owners.addLast(owner);
+            }
+            return null;
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Request {
+
+        private String taskId;
+        private String definitionId;
+        private String flowInstanceId;
+        private TaskPriority priority;
+        private int maxConcurrency;
+        private double cpu;
+        private long memoryBytes;
+        private Runnable launch;
+        private long enqueuedAt;
+    }
+
+    @Getter
+    @Builder
+    public static class Metrics {
+
+        private int running;
+        private int queued;
+        private Map<TaskPriority, Integer> queuedByPriority;
+        private long admitted;
+        private long rejected;
+        private double allocatedCpu;
+        private long allocatedMemory;
+        private double cpuCapacity;
+        private long memoryCapacity;
+        private long averageWaitMillis;
+        private long maxWaitMillis;
+        private long oldestQueuedMillis;
+    }
+}
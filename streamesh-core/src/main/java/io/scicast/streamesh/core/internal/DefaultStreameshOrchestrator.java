@@ -1,7 +1,10 @@
 package io.scicast.streamesh.core.internal;
 
 import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.concurrent.ExecutionEngineFactory;
 import io.scicast.streamesh.core.crypto.CryptoUtil;
+import io.scicast.streamesh.core.exception.CapacityExceededException;
+import io.scicast.streamesh.core.exception.DefinitionNotReadyException;
 import io.scicast.streamesh.core.exception.InvalidCmdParameterException;
 import io.scicast.streamesh.core.exception.MissingParameterException;
 import io.scicast.streamesh.core.exception.NotFoundException;
@@ -11,44 +14,59 @@ import io.scicast.streamesh.core.internal.reflect.Scope;
 import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.Stream;
 
 public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
 
     private static final String BASE_API_PATH = "/api/v1";
     private static final String TASKS_PATH = "/tasks/";
+    private static final String PARTS_PATH = "parts";
 
     private static final String STREAMESH_SERVER_HOST_NAME = "streamesh-server";
     private static final int PORT = 8080;
 
-    private final StreameshStore streameshStore = new InMemoryStreameshStore();
+    public static final String STORE_PROPERTY = "streamesh.store";
+    public static final String DRIVER_PROPERTY = "streamesh.driver";
+    public static final String PRIORITY_INPUT_KEY = "streamesh-priority";
+
+    // Priorities only decide when a task runs, not what it produces.
+    private static final Set<String> CACHE_IGNORED_INPUTS = Collections.singleton(PRIORITY_INPUT_KEY);
+    private static final Set<TaskDescriptor.TaskStatus> TERMINAL_TASK_STATUSES = EnumSet.of(
+            TaskDescriptor.TaskStatus.COMPLETE,
+            TaskDescriptor.TaskStatus.FAILED,
+            TaskDescriptor.TaskStatus.KILLED);
+
+    private final StreameshStore streameshStore;
     private Logger logger = Logger.getLogger(this.getClass().getSimpleName());
     private final StreameshContext context;
     private final ScopeFactory scopeFactory;
 
-    private OrchestrationDriver driver;
+    private final OrchestrationDriver driver;
+    private final Set<String> resolvingImages = ConcurrentHashMap.newKeySet();
+    private final AdmissionScheduler admissionScheduler = AdmissionScheduler.fromSystemProperties();
+    private final ResultCache resultCache;
 
     public DefaultStreameshOrchestrator(String serverIpAddress) {
-        ServiceLoader<OrchestrationDriver> loader = ServiceLoader.load(OrchestrationDriver.class);
+        this(serverIpAddress, loadDriver(), loadStore());
+    }
 
-       driver = StreamSupport.stream(loader.spliterator(), false)
-                .peek(impl -> logger.info(
-                        "Found orchestration driver of type " + impl.getClass().getSimpleName()))
-                .findFirst()
-                .map(impl -> {
-                    logger.info("Using orchestration driver " + impl.getClass().getSimpleName());
-                    return impl;
-                })
-                .orElseThrow(() -> new RuntimeException("No orchestration driver. Booting sequence aborted."));
+    public DefaultStreameshOrchestrator(String serverIpAddress, OrchestrationDriver driver, StreameshStore store) {
+        this.driver = driver;
+        this.streameshStore = store;
 
         context = StreameshContext.builder()
                 .orchestrationDriver(driver)
                 .store(streameshStore)
                 .orchestrator(this)
+                .executionEngine(ExecutionEngineFactory.shared())
                 .serverInfo(StreameshServerInfo.builder()
                         .host(STREAMESH_SERVER_HOST_NAME)
                         .ipAddress(serverIpAddress)
@@ -61,6 +79,52 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
         scopeFactory = ScopeFactory.builder()
                 .streameshContext(context)
                 .build();
+        streameshStore.init(context);
+        resultCache = ResultCache.fromSystemProperties(context);
+        RetentionManager.fromSystemProperties(context, resultCache::isCached).start();
+    }
+
+    private static OrchestrationDriver loadDriver() {
+        Logger logger = Logger.getLogger(DefaultStreameshOrchestrator.class.getSimpleName());
+        String driverType = System.getProperty(DRIVER_PROPERTY);
+        ServiceLoader<OrchestrationDriver> loader = ServiceLoader.load(OrchestrationDriver.class);
+        // Filtered by type before instantiation, as drivers connect to their backends when created.
+        return loader.stream()
+                .peek(provider -> logger.info(
+                        "Found orchestration driver of type " + provider.type().getSimpleName()))
+                .filter(provider -> driverType == null
+                        || provider.type().getName().equals(driverType)
+                        || provider.type().getSimpleName().equals(driverType))
+                .findFirst()
+                .map(ServiceLoader.Provider::get)
+                .map(impl -> {
+                    logger.info("Using orchestration driver " + impl.getClass().getSimpleName());
+                    return impl;
+                })
+                .orElseThrow(() -> new RuntimeException("No orchestration driver. Booting sequence aborted."));
+    }
+
+    private static StreameshStore loadStore() {
+        Logger logger = Logger.getLogger(DefaultStreameshOrchestrator.class.getSimpleName());
+        String storeType = System.getProperty(STORE_PROPERTY);
+        ServiceLoader<StreameshStore> loader = ServiceLoader.load(StreameshStore.class);
+        // Stores found on the classpath are only used when selected, the in-memory one being the default.
+        return loader.stream()
+                .peek(provider -> logger.info(
+                        "Found store of type " + provider.type().getSimpleName()))
+                .filter(provider -> storeType != null
+                        && (provider.type().getName().equals(storeType)
+                        || provider.type().getSimpleName().equals(storeType)))
+                .findFirst()
+                .map(ServiceLoader.Provider::get)
+                .map(impl -> {
+                    logger.info("Using store " + impl.getClass().getSimpleName());
+                    return impl;
+                })
+                .orElseGet(() -> {
+                    logger.info("Using store " + InMemoryStreameshStore.class.getSimpleName());
+                    return new InMemoryStreameshStore();
+                });
     }
 
     public String applyDefinition(Definition definition) {
@@ -80,6 +144,7 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
 
         streameshStore.storeDefinition(definition.withId(definitionId)
             .withGraph(graph)
+            .withPlan(ExecutionPlan.compile(graph))
             .withScope(scope));
         return definitionId;
     }
@@ -87,13 +152,65 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
 
 
     private String applyMicroPipe(MicroPipe micropipe) {
-        String imageId = driver.retrieveContainerImage(micropipe.getImage());
+        validateResources(micropipe.getResources());
         String definitionId = UUID.randomUUID().toString();
-        streameshStore.storeDefinition(micropipe.withImageId(imageId)
-                .withId(definitionId));
+        MicroPipe pending = micropipe.withId(definitionId)
+                .withStatus(MicroPipe.Status.PENDING_IMAGE)
+                .withStatusMessage(null);
+        streameshStore.storeDefinition(pending);
+        resolveImage(pending);
         return definitionId;
     }
 
+    private void validateResources(Resources resources) {
+        if (resources == null) {
+            return;
+        }
+        // Parsing the memory quantities upfront, so that malformed ones are refused at deployment time.
+        Stream.of(resources.getRequests(), resources.getLimits())
+                .filter(Objects::nonNull)
+                .forEach(quantity -> {
+                    quantity.getMemoryBytes();
+                    if (quantity.getCpu() < 0) {
+                        throw new IllegalArgumentException("Invalid cpu quantity " + quantity.getCpu());
+                    }
+                });
+    }
+
+    private void resolveImage(MicroPipe micropipe) {
+        if (!resolvingImages.add(micropipe.getId())) {
+            return;
+        }
+        driver.retrieveContainerImage(micropipe.getImage())
+                .whenComplete((imageId, ex) -> {
+                    resolvingImages.remove(micropipe.getId());
+                    // The definition may have been removed or replaced while its image was being pulled.
+                    if (streameshStore.getDefinitionById(micropipe.getId()) == null) {
+                        return;
+                    }
+                    if (ex == null) {
+                        streameshStore.storeDefinition(micropipe.withImageId(imageId)
+                                .withStatus(MicroPipe.Status.READY));
+                    } else {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        streameshStore.storeDefinition(micropipe.withStatus(MicroPipe.Status.FAILED)
+                                .withStatusMessage("Could not retrieve image " + micropipe.getImage() + ": " + cause.getMessage()));
+                    }
+                });
+    }
+
+    private void checkReadiness(MicroPipe micropipe) {
+        if (MicroPipe.Status.PENDING_IMAGE.equals(micropipe.getStatus())) {
+            // Picks up the definitions restored while their image was still being resolved.
+            resolveImage(micropipe);
+            throw new DefinitionNotReadyException(String.format("The image of definition %s is still being retrieved.",
+                    micropipe.getName()));
+        }
+        if (MicroPipe.Status.FAILED.equals(micropipe.getStatus())) {
+            throw new DefinitionNotReadyException(micropipe.getStatusMessage());
+        }
+    }
+
     public Definition getDefinition(String id) {
         Definition definition = streameshStore.getDefinitionById(id);
         if(definition == null) {
@@ -192,34 +309,171 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
     }
 
     public TaskDescriptor scheduleTask(String definitionId, String taskId, Map<?, ?> input, Consumer<TaskExecutionEvent<?>> eventHandler) {
+        return scheduleTask(definitionId, taskId, null, input, eventHandler);
+    }
+
+    public TaskDescriptor scheduleTask(String definitionId, String taskId, String flowInstanceId, Map<?, ?> input, Consumer<TaskExecutionEvent<?>> eventHandler) {
+        return scheduleTask(definitionId, taskId, flowInstanceId, input, Collections.emptyMap(), eventHandler);
+    }
+
+    public TaskDescriptor scheduleTask(String definitionId, String taskId, String flowInstanceId, Map<?, ?> input,
+                                       Map<String, DataTransport> inputTransports, Consumer<TaskExecutionEvent<?>> eventHandler) {
         Definition definition = getDefinition(definitionId);
         if (!(definition instanceof MicroPipe)) {
             throw new IllegalArgumentException("Cannot schedule tasks for definitions of type " + definition.getType());
         }
         MicroPipe pipe = (MicroPipe) definition;
+        checkReadiness(pipe);
         validateTaskInput(input, pipe.getInputMapping());
-        TaskDescriptor descriptor = driver.scheduleTask(
-                TaskExecutionIntent.builder()
-                    .image(pipe.getImage())
+        Consumer<TaskExecutionEvent<?>> handler = eventHandler;
+        if (pipe.isCacheable()) {
+            String key = resultCache.key(pipe, input, CACHE_IGNORED_INPUTS);
+            Optional<ResultCache.Entry> cached = resultCache.lookup(key);
+            if (cached.isPresent()) {
+                return completeFromCache(pipe, taskId, flowInstanceId, cached.get(), eventHandler);
+            }
+            handler = resultCache.recording(key, taskId, eventHandler);
+        }
+        Consumer<TaskExecutionEvent<?>> taskHandler = handler;
+        // Stored first, since the task may be admitted and launched straight away.
+        updateIndexes(pipe, TaskDescriptor.builder()
+                .id(taskId)
+                .flowInstanceId(flowInstanceId)
+                .status(TaskDescriptor.TaskStatus.QUEUED)
+                .build());
+        try {
+            admissionScheduler.submit(AdmissionScheduler.Request.builder()
                     .taskId(taskId)
-                    .taskInput(pipe.getInputMapping())
-                    .taskOutputs(pipe.getOutputMapping())
-                    .runtimeInput(input)
-                    .build(),
-                event -> {
-                    updateState(pipe, event);
-                    eventHandler.accept(event);
-                },
-                context)
-                .withServiceName(definition.getName())
-                .withServiceId(definition.getId());
+                    .definitionId(pipe.getId())
+                    .flowInstanceId(flowInstanceId)
+                    .priority(getPriority(pipe, input))
+                    .maxConcurrency(pipe.getMaxConcurrency())
+                    .cpu(pipe.getResources() != null ? pipe.getResources().getRequestedCpu() : 0)
+                    .memoryBytes(pipe.getResources() != null ? pipe.getResources().getRequestedMemoryBytes() : 0)
+                    .launch(() -> launchTask(pipe, taskId, flowInstanceId, input, inputTransports, taskHandler))
+                    .build());
+        } catch (CapacityExceededException e) {
+            streameshStore.removeTask(taskId);
+            throw e;
+        }
+        return streameshStore.getTaskById(taskId);
+    }
+
+    private TaskDescriptor completeFromCache(MicroPipe pipe, String taskId, String flowInstanceId, ResultCache.Entry entry,
+                                             Consumer<TaskExecutionEvent<?>> eventHandler) {
+        LocalDateTime now = LocalDateTime.now();
+        TaskDescriptor descriptor = TaskDescriptor.builder()
+                .id(taskId)
+                .flowInstanceId(flowInstanceId)
+                .status(TaskDescriptor.TaskStatus.COMPLETE)
+                .cachedFrom(entry.getTaskId())
+                .started(now)
+                .exited(now)
+                .build();
         updateIndexes(pipe, descriptor);
-        return descriptor;
+        // Parts are reported before the task completes, as they are for tasks that run.
+        entry.getParts().forEach((outputName, parts) -> parts.forEach(partName -> eventHandler.accept(
+                TaskExecutionEvent.builder()
+                        .type(TaskExecutionEvent.EventType.OUTPUT_AVAILABILITY)
+                        .descriptor(TaskOutputDescriptor.builder()
+                                .taskId(taskId)
+                                .outputName(outputName)
+                                .partName(partName)
+                                .build())
+                        .build())));
+        eventHandler.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(descriptor)
+                .build());
+        return streameshStore.getTaskById(taskId);
+    }
+
+    private void launchTask(MicroPipe pipe, String taskId, String flowInstanceId, Map<?, ?> input,
+                            Map<String, DataTransport> inputTransports, Consumer<TaskExecutionEvent<?>> eventHandler) {
+        TaskDescriptor descriptor;
+        try {
+            descriptor = driver.scheduleTask(
+                    TaskExecutionIntent.builder()
+                        .image(pipe.getImage())
+                        .taskId(taskId)
+                        .definitionId(pipe.getId())
+                        .flowInstanceId(flowInstanceId)
+                        .taskInput(pipe.getInputMapping())
+                        .taskOutputs(pipe.getOutputMapping())
+                        .runtimeInput(input)
+                        .inputTransports(inputTransports)
+                        .warmPool(pipe.getWarmPool())
+                        .resources(pipe.getResources())
+                        .build(),
+                    event -> {
+                        updateState(pipe, event);
+                        eventHandler.accept(event);
+                        releaseIfTerminated(event);
+                    },
+                    context)
+                    .withFlowInstanceId(flowInstanceId);
+        } catch (RuntimeException e) {
+            logger.warning(String.format("Could not schedule task %s: %s", taskId, e.getMessage()));
+            TaskExecutionEvent<?> event = TaskExecutionEvent.builder()
+                    .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                    .descriptor(TaskDescriptor.builder()
+                            .id(taskId)
+                            .flowInstanceId(flowInstanceId)
+                            .status(TaskDescriptor.TaskStatus.FAILED)
+                            .errorMessage(e.getMessage())
+                            .build())
+                    .build();
+            updateState(pipe, event);
+            eventHandler.accept(event);
+            releaseIfTerminated(event);
+            return;
+        }
+        // The driver may already have reported a more recent status through the event handler.
+        TaskDescriptor stored = streameshStore.getTaskById(taskId);
+        if (TaskDescriptor.TaskStatus.QUEUED.equals(stored.getStatus())) {
+            updateIndexes(pipe, descriptor);
+        }
+    }
+
+    private void releaseIfTerminated(TaskExecutionEvent<?> event) {
+        if (event.getType().equals(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)) {
+            TaskDescriptor descriptor = (TaskDescriptor) event.getDescriptor();
+            if (TERMINAL_TASK_STATUSES.contains(descriptor.getStatus())) {
+                admissionScheduler.release(descriptor.getId());
+            }
+        }
+    }
+
+    private TaskPriority getPriority(MicroPipe pipe, Map<?, ?> input) {
+        Object priority = input.get(PRIORITY_INPUT_KEY);
+        if (priority != null) {
+            try {
+                return TaskPriority.valueOf(priority.toString().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCmdParameterException(String.format("Unknown task priority %s. Valid values are %s",
+                        priority, Arrays.toString(TaskPriority.values())));
+            }
+        }
+        return pipe.getPriority() != null ? pipe.getPriority() : TaskPriority.NORMAL;
     }
 
     @Override
     public void killTask(String taskId) {
+        if (admissionScheduler.cancel(taskId)) {
+            TaskDescriptor descriptor = getTask(taskId);
+            streameshStore.updateTask(descriptor.getServiceId(), descriptor.withStatus(TaskDescriptor.TaskStatus.KILLED));
+            return;
+        }
         driver.killTask(taskId, context);
+        admissionScheduler.release(taskId);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("admission", admissionScheduler.getMetrics());
+        metrics.put("cache", resultCache.getMetrics());
+        return metrics;
     }
 
     @Override
@@ -228,18 +482,15 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
         if (flowInstance == null) {
             throw new NotFoundException("Could not find a flow instance with id " + flowInstanceId);
         }
-        flowInstance.getExecutionGraph().getNodes().stream()
-                .filter(node -> node instanceof ExecutablePipeRuntimeNode)
+        flowInstance.getExecutionGraph().getScheduledNodes()
                 .forEach(node -> {
                     if (node instanceof MicroPipeRuntimeNode) {
-                        String taskId = ((MicroPipeRuntimeNode) node).getTaskId();
-                        if (taskId != null) {
-                            killTask(taskId);
-                        }
+                        ((MicroPipeRuntimeNode) node).getTaskIds().forEach(this::killTask);
                     } else {
                         killFlowInstance(((FlowReferenceRuntimeNode)node).getInstanceId());
                     }
                 });
+        context.getExecutableRegistry().unregisterFlowInstance(flowInstanceId);
         streameshStore.storeFlowInstance(flowInstance.withStatus(FlowInstance.FlowInstanceStatus.KILLED));
     }
 
@@ -267,11 +518,7 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
     }
 
     public TaskDescriptor getTask(String taskId) {
-        TaskDescriptor task = streameshStore.getTaskById(taskId);
-        if (task == null) {
-            throw new NotFoundException(String.format("No task found for id %s", taskId));
-        }
-        return task;
+        return streameshStore.getTaskById(taskId);
     }
 
     private void updateState(MicroPipe definition, TaskExecutionEvent<?> event) {
@@ -302,7 +549,7 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
 
     public InputStream getTaskOutput(String taskDescriptorId, String outputName) {
         TaskDescriptor job = getTask(taskDescriptorId);
-        InputStream stream = driver.getTaskOutput(taskDescriptorId, outputName);
+        InputStream stream = driver.getTaskOutput(outputTaskId(job), outputName);
         if (job.getKey() != null) {
             stream = CryptoUtil.getCipherInputStream(stream, job.getKey());
         }
@@ -310,6 +557,39 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
     }
 
     @Override
+    public Optional<Path> getCompletedTaskOutput(String taskDescriptorId, String outputName) {
+        TaskDescriptor job = getTask(taskDescriptorId);
+        // Encrypted outputs have to go through the cipher stream, so only plain completed outputs are served from disk.
+        if (!TaskDescriptor.TaskStatus.COMPLETE.equals(job.getStatus()) || job.getKey() != null) {
+            return Optional.empty();
+        }
+        return driver.getTaskOutputPath(outputTaskId(job), outputName);
+    }
+
+    @Override
+    public InputStream getTaskOutputPart(String taskDescriptorId, String outputName, String partName) {
+        TaskDescriptor job = getTask(taskDescriptorId);
+        InputStream stream = driver.getTaskOutputPart(outputTaskId(job), outputName, partName);
+        if (job.getKey() != null) {
+            stream = CryptoUtil.getCipherInputStream(stream, job.getKey());
+        }
+        return stream;
+    }
+
+    @Override
+    public Optional<Path> getCompletedTaskOutputPart(String taskDescriptorId, String outputName, String partName) {
+        TaskDescriptor job = getTask(taskDescriptorId);
+        if (!TaskDescriptor.TaskStatus.COMPLETE.equals(job.getStatus()) || job.getKey() != null) {
+            return Optional.empty();
+        }
+        return driver.getTaskOutputPartPath(outputTaskId(job), outputName, partName);
+    }
+
+    private String outputTaskId(TaskDescriptor task) {
+        // Tasks served from the cache have no outputs of their own.
+        return task.getCachedFrom() != null ? task.getCachedFrom() : task.getId();
+    }
+
     public InputStream getFlowOutput(String flowInstanceId, String outputName) {
         FlowInstance instance = getFlowInstance(flowInstanceId);
         FlowOutputRuntimeNode outputNode = instance.getExecutionGraph().getOutputNodes().stream()
@@ -328,6 +608,9 @@ public class DefaultStreameshOrchestrator implements StreameshOrchestrator {
                 if (parameters.length == 2) {
                     return getTaskOutput(parameters[0], parameters[1]);
                 }
+                if (parameters.length == 4 && PARTS_PATH.equals(parameters[2])) {
+                    return getTaskOutputPart(parameters[0], parameters[1], parameters[3]);
+                }
 
             }
         }
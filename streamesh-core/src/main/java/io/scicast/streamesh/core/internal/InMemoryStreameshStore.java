@@ -3,26 +3,31 @@ package io.scicast.streamesh.core.internal;
 import io.scicast.streamesh.core.*;
 import io.scicast.streamesh.core.exception.NotFoundException;
 import io.scicast.streamesh.core.flow.FlowInstance;
-import io.scicast.streamesh.core.flow.execution.MicroPipeRuntimeNode;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 public class InMemoryStreameshStore implements StreameshStore {
 
-    private Map<String, Definition> definitions = new HashMap<>();
-    private Map<String, Definition> definitionsByName = new HashMap<>();
+    private final Map<String, Definition> definitions = new ConcurrentHashMap<>();
+    private final Map<String, Definition> definitionsByName = new ConcurrentHashMap<>();
 
-    private Map<String, FlowInstance> flowInstances = new HashMap<>();
-    private Map<String, Set<FlowInstance>> flowDefinitionsToInstances = new HashMap<>();
+    private final Map<String, FlowInstance> flowInstances = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, FlowInstance>> flowDefinitionsToInstances = new ConcurrentHashMap<>();
 
-    private Map<String, TaskDescriptor> tasks = new HashMap<>();
-    private Map<MicroPipe, Set<TaskDescriptor>> pipesToTasks = new HashMap<>();
+    private final Map<String, TaskDescriptor> tasks = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, TaskDescriptor>> definitionsToTasks = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, TaskDescriptor>> flowInstancesToTasks = new ConcurrentHashMap<>();
+    private final Map<TaskDescriptor.TaskStatus, Map<String, TaskDescriptor>> statusesToTasks = new EnumMap<>(TaskDescriptor.TaskStatus.class);
 
+    public InMemoryStreameshStore() {
+        // The status index is fully populated up front so that the enum map itself is never modified concurrently.
+        Arrays.stream(TaskDescriptor.TaskStatus.values())
+                .forEach(status -> statusesToTasks.put(status, new ConcurrentHashMap<>()));
+    }
 
     @Override
-    public void storeDefinition(Definition definition) {
+    public synchronized void storeDefinition(Definition definition) {
         Definition previous = definitionsByName.get(definition.getName());
         if(previous != null) {
             definitions.remove(previous.getId());
@@ -33,37 +38,26 @@ public class InMemoryStreameshStore implements StreameshStore {
 
     @Override
     public void storeFlowInstance(FlowInstance instance) {
-        flowInstances.put(instance.getId(), instance);
-        Set<FlowInstance> flowInstances = flowDefinitionsToInstances.get(instance.getDefinitionId());
-        if (flowInstances == null) {
-            flowInstances = new HashSet<>();
-        }
-        flowInstances.add(instance);
-        flowDefinitionsToInstances.put(instance.getDefinitionId(), flowInstances);
+        flowInstances.compute(instance.getId(), (id, previous) -> {
+            put(flowDefinitionsToInstances, instance.getDefinitionId(), id, instance);
+            return instance;
+        });
     }
 
     @Override
     public FlowInstance getFlowInstance(String instanceId) {
-        return Optional.of(flowInstances.get(instanceId))
+        return Optional.ofNullable(flowInstances.get(instanceId))
                 .orElseThrow(() -> new NotFoundException("Cannot find flow instance with id " + instanceId));
     }
 
     @Override
     public Set<FlowInstance> getFlowInstancesByDefinition(String flowDefinitionId) {
-        return flowDefinitionsToInstances.getOrDefault(flowDefinitionId, new HashSet<>()).stream().collect(Collectors.toSet());
+        return view(flowDefinitionsToInstances.get(flowDefinitionId));
     }
 
     @Override
     public Set<TaskDescriptor> getTasksByFlowInstance(String flowInstanceId) {
-        FlowInstance flowInstance = flowInstances.get(flowInstanceId);
-        if (flowInstance != null) {
-            return flowInstance.getExecutionGraph().getNodes().stream()
-                    .filter(node -> node instanceof MicroPipeRuntimeNode)
-                    .map(node -> (MicroPipeRuntimeNode) node)
-                    .map(node -> tasks.get(node.getTaskId()))
-                    .collect(Collectors.toSet());
-        }
-        return new HashSet<>();
+        return view(flowInstancesToTasks.get(flowInstanceId));
     }
 
     @Override
@@ -77,7 +71,7 @@ public class InMemoryStreameshStore implements StreameshStore {
     }
 
     @Override
-    public void removeDefinition(String id) {
+    public synchronized void removeDefinition(String id) {
         Definition removed = definitions.remove(id);
         if(removed != null) {
             definitionsByName.remove(removed.getName());
@@ -86,55 +80,124 @@ public class InMemoryStreameshStore implements StreameshStore {
 
     @Override
     public Set<Definition> getAllDefinitions() {
-        return definitions.entrySet().stream()
-                .map(e -> e.getValue())
-                .collect(Collectors.toSet());
+        return view(definitions);
     }
 
     @Override
     public Set<TaskDescriptor> getAllTasks() {
-        return tasks.values().stream().collect(Collectors.toSet());
+        return view(tasks);
     }
 
     @Override
     public Set<TaskDescriptor> getTasksByDefinition(String definitionId) {
-        return pipesToTasks.getOrDefault(getDefinitionById(definitionId), new HashSet<>()).stream().collect(Collectors.toSet());
+        return view(definitionsToTasks.get(definitionId));
+    }
+
+    @Override
+    public Set<TaskDescriptor> getTasksByStatus(TaskDescriptor.TaskStatus status) {
+        return view(statusesToTasks.get(status));
     }
 
     @Override
     public TaskDescriptor getTaskById(String taskId) {
-        return Optional.of(tasks.get(taskId)).orElseThrow(() -> new NotFoundException("Cannot find task with id " + taskId));
+        return Optional.ofNullable(tasks.get(taskId)).orElseThrow(() -> new NotFoundException("Cannot find task with id " + taskId));
     }
 
     @Override
     public void updateTask(String definitionId, TaskDescriptor descriptor) {
-        tasks.put(descriptor.getId(), descriptor);
         Definition definition = getDefinitionById(definitionId);
         if (!(definition instanceof MicroPipe)) {
-            throw new IllegalArgumentException("Cannot associate a task to a definition of type " + definition.getType());
-        }
-        Set<TaskDescriptor> taskDescriptors = pipesToTasks.get(definition);
-        if (taskDescriptors == null) {
-            taskDescriptors = new HashSet<>();
-        } else {
-            taskDescriptors.remove(descriptor);
-            taskDescriptors.add(descriptor);
+            throw new IllegalArgumentException("Cannot associate a task to a definition of type "
+                    + (definition != null ? definition.getType() : null));
         }
-        pipesToTasks.put((MicroPipe) definition, taskDescriptors);
+        // compute() serializes concurrent updates of the same task, which keeps the secondary indexes consistent.
+        tasks.compute(descriptor.getId(), (id, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            put(definitionsToTasks, definitionId, id, descriptor);
+            if (descriptor.getFlowInstanceId() != null) {
+                put(flowInstancesToTasks, descriptor.getFlowInstanceId(), id, descriptor);
+            }
+            if (descriptor.getStatus() != null) {
+                statusesToTasks.get(descriptor.getStatus()).put(id, descriptor);
+            }
+            return descriptor;
+        });
     }
 
     @Override
     public Set<FlowInstance> getAllFlowInstances() {
-        return flowInstances.values().stream().collect(Collectors.toSet());
+        return view(flowInstances);
     }
 
     @Override
     public void removeTask(String taskId) {
-        tasks.remove(taskId);
+        tasks.computeIfPresent(taskId, (id, previous) -> {
+            unindex(previous);
+            return null;
+        });
     }
 
     @Override
     public void removeFlowInstance(String flowInstanceId) {
-        flowInstances.remove(flowInstanceId);
+        flowInstances.computeIfPresent(flowInstanceId, (id, previous) -> {
+            remove(flowDefinitionsToInstances, previous.getDefinitionId(), id);
+            return null;
+        });
+    }
+
+    private void unindex(TaskDescriptor descriptor) {
+        remove(definitionsToTasks, descriptor.getServiceId(), descriptor.getId());
+        if (descriptor.getFlowInstanceId() != null) {
+            remove(flowInstancesToTasks, descriptor.getFlowInstanceId(), descriptor.getId());
+        }
+        if (descriptor.getStatus() != null) {
+            statusesToTasks.get(descriptor.getStatus()).remove(descriptor.getId());
+        }
+    }
+
+    private static <T> void put(Map<String, Map<String, T>> index, String key, String id, T value) {
+        index.compute(key, (k, entries) -> {
+            Map<String, T> result = entries != null ? entries : new ConcurrentHashMap<>();
+            result.put(id, value);
+            return result;
+        });
+    }
+
+    private static <T> void remove(Map<String, Map<String, T>> index, String key, String id) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, entries) -> {
+            entries.remove(id);
+            return entries.isEmpty() ? null : entries;
+        });
+    }
+
+    private static <T> Set<T> view(Map<String, T> entries) {
+        return entries == null ? Collections.emptySet() : new ValuesView<>(entries);
+    }
+
+    /**
+     * Read-only view over the values of a concurrent map, so that queries do not copy the underlying collection.
+     */
+    private static class ValuesView<T> extends AbstractSet<T> {
+
+        private final Map<String, T> entries;
+
+        ValuesView(Map<String, T> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return Collections.unmodifiableCollection(entries.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,247 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.TaskExecutionEvent;
+import io.scicast.streamesh.core.TaskOutputDescriptor;
+import io.scicast.streamesh.core.exception.NotFoundException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the outputs of completed tasks of cacheable micropipes, keyed by a hash of the definition, its image and the
+ * task input, so that a task with the same key can reuse them instead of running again. Entries expire after a
+ * configurable time, and the least recently used ones are evicted once the configured number of entries or output
+ * bytes is exceeded. The cache only pins the tasks producing its entries: once an entry is evicted or expires, the
+ * outputs of its task are released by the retention manager like those of any other task, as they may still be read
+ * by the flow that ran the task or by tasks completed from the cache.
+ */
+public class ResultCache {
+
+    public static final String MAX_ENTRIES_PROPERTY = "streamesh.cache.max.entries";
+    public static final String MAX_BYTES_PROPERTY = "streamesh.cache.max.bytes";
+    public static final String TTL_PROPERTY = "streamesh.cache.ttl.millis";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long UNLIMITED = 0;
+    private static final Pattern TASK_URL = Pattern.compile("/tasks/([^/]+)/");
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final StreameshContext context;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry> cachedTasks = new HashMap<>();
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @Builder
+    public ResultCache(StreameshContext context, int maxEntries, long maxBytes, long ttlMillis) {
+        this.context = context;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static ResultCache fromSystemProperties(StreameshContext context) {
+        return ResultCache.builder()
+                .context(context)
+                .maxEntries(Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES))
+                .maxBytes(Long.getLong(MAX_BYTES_PROPERTY, UNLIMITED))
+                .ttlMillis(Long.getLong(TTL_PROPERTY, DEFAULT_TTL_MILLIS))
+                .build();
+    }
+
+    /**
+     * Hashes the definition, its image and the input of a task. Inputs are taken in the order of their names, and
+     * outputs of tasks served from the cache are referred to by the task that produced them, so that a pipe reading
+     * them gets the same key whether its upstream pipe ran or not.
+     */
+    public String key(MicroPipe pipe, Map<?, ?> input, Set<String> ignoredInputs) {
+        StringBuilder canonical = new StringBuilder()
+                .append(pipe.getId()).append('\n')
+                .append(pipe.getImageId() != null ? pipe.getImageId() : pipe.getImage()).append('\n');
+        new TreeMap<>(stringify(input)).forEach((name, value) -> {
+            if (!ignoredInputs.contains(name)) {
+                canonical.append(name).append('=').append(value).append('\n');
+            }
+        });
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available.", e);
+        }
+    }
+
+    public synchronized Optional<Entry> lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            evict(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(entry);
+    }
+
+    /**
+     * Wraps the event handler of a task so that its outputs are cached under the given key once it completes.
+     */
+    public Consumer<TaskExecutionEvent<?>> recording(String key, String taskId, Consumer<TaskExecutionEvent<?>> eventHandler) {
+        Map<String, List<String>> parts = new LinkedHashMap<>();
+        return event -> {
+            if (event.getType().equals(TaskExecutionEvent.EventType.OUTPUT_AVAILABILITY)) {
+                TaskOutputDescriptor output = (TaskOutputDescriptor) event.getDescriptor();
+                if (output.getPartName() != null) {
+                    parts.computeIfAbsent(output.getOutputName(), name -> new ArrayList<>()).add(output.getPartName());
+                }
+            } else if (TaskDescriptor.TaskStatus.COMPLETE.equals(((TaskDescriptor) event.getDescriptor()).getStatus())) {
+                put(key, Entry.builder()
+                        .taskId(taskId)
+                        .parts(parts)
+                        .sizeBytes(context.getOrchestrationDriver().getTaskOutputSize(taskId))
+                        .createdAt(System.currentTimeMillis())
+                        .build());
+            }
+            eventHandler.accept(event);
+        };
+    }
+
+    /**
+     * Tasks whose outputs are cached, which retention leaves alone. Checking a task whose entry has expired evicts
+     * all expired entries, so that the periodic retention sweep also unpins the entries no lookup comes across.
+     */
+    public synchronized boolean isCached(String taskId) {
+        Entry entry = cachedTasks.get(taskId);
+        if (entry != null && isExpired(entry)) {
+            evictExpired();
+            return false;
+        }
+        return entry != null;
+    }
+
+    public synchronized Metrics getMetrics() {
+        return Metrics.builder()
+                .entries(entries.size())
+                .totalBytes(totalBytes)
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .build();
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        if (maxBytes > UNLIMITED && entry.getSizeBytes() > maxBytes) {
+            logger.fine(String.format("Outputs of task %s are too large to be cached.", entry.getTaskId()));
+            return;
+        }
+        if (entries.containsKey(key)) {
+            evict(key);
+        }
+        Iterator<String> leastRecentlyUsed = new ArrayList<>(entries.keySet()).iterator();
+        entries.put(key, entry);
+        cachedTasks.put(entry.getTaskId(), entry);
+        totalBytes += entry.getSizeBytes();
+        while (leastRecentlyUsed.hasNext() && exceedsLimits()) {
+            evict(leastRecentlyUsed.next());
+        }
+    }
+
+    private boolean exceedsLimits() {
+        return (maxEntries > UNLIMITED && entries.size() > maxEntries)
+                || (maxBytes > UNLIMITED && totalBytes > maxBytes);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttlMillis > UNLIMITED && System.currentTimeMillis() - entry.getCreatedAt() > ttlMillis;
+    }
+
+    private void evictExpired() {
+        List<String> expired = new ArrayList<>();
+        entries.forEach((key, entry) -> {
+            if (isExpired(entry)) {
+                expired.add(key);
+            }
+        });
+        expired.forEach(this::evict);
+    }
+
+    private void evict(String key) {
+        Entry entry = entries.remove(key);
+        cachedTasks.remove(entry.getTaskId());
+        totalBytes -= entry.getSizeBytes();
+        evictions++;
+    }
+
+    private Map<String, String> stringify(Map<?, ?> input) {
+        Map<String, String> values = new HashMap<>();
+        input.forEach((name, value) -> values.put(String.valueOf(name), resolveTaskUrls(String.valueOf(value))));
+        return values;
+    }
+
+    private String resolveTaskUrls(String value) {
+        Matcher matcher = TASK_URL.matcher(value);
+        StringBuffer resolved = new StringBuffer();
+        while (matcher.find()) {
+            String taskId = producerOf(matcher.group(1));
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement("/tasks/" + taskId + "/"));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private String producerOf(String taskId) {
+        try {
+            TaskDescriptor task = context.getStore().getTaskById(taskId);
+            return task.getCachedFrom() != null ? task.getCachedFrom() : taskId;
+        } catch (NotFoundException e) {
+            return taskId;
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Entry {
+
+        private String taskId;
+        private Map<String, List<String>> parts;
+        private long sizeBytes;
+        private long createdAt;
+    }
+
+    @Getter
+    @Builder
+    public static class Metrics {
+
+        private int entries;
+        private long totalBytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+    }
+}
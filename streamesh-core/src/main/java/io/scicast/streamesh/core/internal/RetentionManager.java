@@ -0,0 +1,242 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.StreameshStore;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import io.scicast.streamesh.core.flow.execution.FlowReferenceRuntimeNode;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically evicts terminated tasks and flow instances from the store and releases their outputs in the driver.
+ * Tasks started by a flow and nested flow instances are only evicted together with the top level flow instance
+ * they belong to, so that nothing is released while a flow may still read from it. Tasks whose outputs are served
+ * for tasks completed from the cache are kept until those tasks are evicted.
+ */
+public class RetentionManager {
+
+    public static final String INTERVAL_PROPERTY = "streamesh.retention.interval.millis";
+    public static final String MAX_AGE_PROPERTY = "streamesh.retention.max.age.millis";
+    public static final String MAX_COUNT_PER_DEFINITION_PROPERTY = "streamesh.retention.max.count.per.definition";
+    public static final String MAX_OUTPUT_BYTES_PROPERTY = "streamesh.retention.max.output.bytes";
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 60_000;
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int DEFAULT_MAX_COUNT_PER_DEFINITION = 1000;
+    private static final long UNLIMITED = 0;
+
+    private static final Set<TaskDescriptor.TaskStatus> TERMINAL_TASK_STATUSES = EnumSet.of(
+            TaskDescriptor.TaskStatus.COMPLETE,
+            TaskDescriptor.TaskStatus.FAILED,
+            TaskDescriptor.TaskStatus.KILLED);
+    private static final Set<FlowInstance.FlowInstanceStatus> TERMINAL_FLOW_STATUSES = EnumSet.of(
+            FlowInstance.FlowInstanceStatus.COMPLETE,
+            FlowInstance.FlowInstanceStatus.FAILED,
+            FlowInstance.FlowInstanceStatus.KILLED);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final StreameshContext context;
+    private final long maxAgeMillis;
+    private final int maxCountPerDefinition;
+    private final long maxOutputBytes;
+    private final Predicate<String> pinnedTasks;
+
+    private final Map<String, Long> outputSizes = new ConcurrentHashMap<>();
+
+    @Builder
+    public RetentionManager(StreameshContext context, long maxAgeMillis, int maxCountPerDefinition, long maxOutputBytes,
+                            Predicate<String> pinnedTasks) {
+        this.context = context;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxCountPerDefinition = maxCountPerDefinition;
+        this.maxOutputBytes = maxOutputBytes;
+        this.pinnedTasks = pinnedTasks != null ? pinnedTasks : taskId -> false;
+    }
+
+    /**
+     * Pinned tasks are never evicted, they become candidates again once they are unpinned.
+     */
+    public static RetentionManager fromSystemProperties(StreameshContext context, Predicate<String> pinnedTasks) {
+        return RetentionManager.builder()
+                .context(context)
+                .pinnedTasks(pinnedTasks)
+                .maxAgeMillis(Long.getLong(MAX_AGE_PROPERTY, DEFAULT_MAX_AGE_MILLIS))
+                .maxCountPerDefinition(Integer.getInteger(MAX_COUNT_PER_DEFINITION_PROPERTY, DEFAULT_MAX_COUNT_PER_DEFINITION))
+                .maxOutputBytes(Long.getLong(MAX_OUTPUT_BYTES_PROPERTY, UNLIMITED))
+                .build();
+    }
+
+    public void start() {
+        long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+        context.getExecutionEngine().scheduleAtFixedRate(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void sweep() {
+        Set<String> producers = context.getStore().getAllTasks().stream()
+                .map(TaskDescriptor::getCachedFrom)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Predicate<String> retained = pinnedTasks.or(producers::contains);
+        List<RetentionCandidate> candidates = collectCandidates(retained);
+        Set<RetentionCandidate> evicted = new HashSet<>();
+
+        if (maxAgeMillis > UNLIMITED) {
+            LocalDateTime threshold = LocalDateTime.now().minus(Duration.ofMillis(maxAgeMillis));
+            candidates.stream()
+                    .filter(c -> c.getTerminatedAt() != null && c.getTerminatedAt().isBefore(threshold))
+                    .forEach(evicted::add);
+        }
+
+        if (maxCountPerDefinition > UNLIMITED) {
+            candidates.stream()
+                    .filter(c -> !evicted.contains(c))
+                    .collect(Collectors.groupingBy(c -> String.valueOf(c.getDefinitionId())))
+                    .values().stream()
+                    .filter(group -> group.size() > maxCountPerDefinition)
+                    .forEach(group -> group.stream()
+                            .sorted(Comparator.comparing(RetentionCandidate::getTerminatedAt,
+                                    Comparator.nullsFirst(Comparator.naturalOrder())).reversed())
+                            .skip(maxCountPerDefinition)
+                            .forEach(evicted::add));
+        }
+
+        if (maxOutputBytes > UNLIMITED) {
+            List<RetentionCandidate> remaining = candidates.stream()
+                    .filter(c -> !evicted.contains(c))
+                    .sorted(Comparator.comparing(RetentionCandidate::getTerminatedAt,
+                            Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .collect(Collectors.toList());
+            long totalBytes = remaining.stream().mapToLong(c -> outputSize(c, retained)).sum();
+            Iterator<RetentionCandidate> oldestFirst = remaining.iterator();
+            while (totalBytes > maxOutputBytes && oldestFirst.hasNext()) {
+                RetentionCandidate candidate = oldestFirst.next();
+                totalBytes -= outputSize(candidate, retained);
+                evicted.add(candidate);
+            }
+        }
+
+        evicted.forEach(candidate -> evict(candidate, retained));
+        if (!evicted.isEmpty()) {
+            logger.info(String.format("Retention sweep evicted %s tasks and flow instances.", evicted.size()));
+        }
+    }
+
+    private List<RetentionCandidate> collectCandidates(Predicate<String> retained) {
+        StreameshStore store = context.getStore();
+        List<RetentionCandidate> candidates = new ArrayList<>();
+        Map<String, FlowInstance> instances = store.getAllFlowInstances().stream()
+                .collect(Collectors.toMap(FlowInstance::getId, instance -> instance, (a, b) -> b));
+
+        store.getAllTasks().stream()
+                .filter(task -> task.getFlowInstanceId() == null || !instances.containsKey(task.getFlowInstanceId()))
+                .filter(task -> TERMINAL_TASK_STATUSES.contains(task.getStatus()))
+                .filter(task -> !retained.test(task.getId()))
+                .forEach(task -> candidates.add(RetentionCandidate.builder()
+                        .id(task.getId())
+                        .definitionId(task.getServiceId())
+                        .terminatedAt(task.getExited() != null ? task.getExited() : task.getStarted())
+                        .taskIds(Collections.singletonList(task.getId()))
+                        .flowInstanceIds(Collections.emptyList())
+                        .build()));
+
+        Set<String> nestedInstances = instances.values().stream()
+                .flatMap(instance -> nestedInstanceIds(instance).stream())
+                .collect(Collectors.toSet());
+        instances.values().stream()
+                .filter(instance -> !nestedInstances.contains(instance.getId()))
+                .forEach(instance -> {
+                    List<String> tree = new ArrayList<>();
+                    if (!collectTree(instance, instances, tree)) {
+                        return;
+                    }
+                    List<TaskDescriptor> tasks = tree.stream()
+                            .flatMap(id -> store.getTasksByFlowInstance(id).stream())
+                            .collect(Collectors.toList());
+                    // A flow completes as soon as its outputs do, while pipes that do not feed them may still be running.
+                    if (tasks.stream().allMatch(task -> TERMINAL_TASK_STATUSES.contains(task.getStatus()))) {
+                        candidates.add(RetentionCandidate.builder()
+                                .id(instance.getId())
+                                .definitionId(instance.getDefinitionId())
+                                .terminatedAt(instance.getCompleted() != null ? instance.getCompleted() : instance.getStarted())
+                                .flowInstanceIds(tree)
+                                .taskIds(tasks.stream()
+                                        .map(TaskDescriptor::getId)
+                                        .collect(Collectors.toList()))
+                                .build());
+                    }
+                });
+        return candidates;
+    }
+
+    private boolean collectTree(FlowInstance instance, Map<String, FlowInstance> instances, List<String> tree) {
+        if (!TERMINAL_FLOW_STATUSES.contains(instance.getStatus())) {
+            return false;
+        }
+        tree.add(instance.getId());
+        for (String nestedId : nestedInstanceIds(instance)) {
+            FlowInstance nested = instances.get(nestedId);
+            if (nested != null && !collectTree(nested, instances, tree)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> nestedInstanceIds(FlowInstance instance) {
+        if (instance.getExecutionGraph() == null) {
+            return Collections.emptyList();
+        }
+        return instance.getExecutionGraph().getScheduledNodes().stream()
+                .filter(node -> node instanceof FlowReferenceRuntimeNode)
+                .map(node -> ((FlowReferenceRuntimeNode) node).getInstanceId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private long outputSize(RetentionCandidate candidate, Predicate<String> retained) {
+        // Outputs of terminated tasks do not change anymore, so their size is only computed once.
+        return candidate.getTaskIds().stream()
+                .filter(taskId -> !retained.test(taskId))
+                .mapToLong(taskId -> outputSizes.computeIfAbsent(taskId,
+                        id -> context.getOrchestrationDriver().getTaskOutputSize(id)))
+                .sum();
+    }
+
+    private void evict(RetentionCandidate candidate, Predicate<String> retained) {
+        StreameshStore store = context.getStore();
+        candidate.getTaskIds().stream().filter(taskId -> !retained.test(taskId)).forEach(taskId -> {
+            try {
+                context.getOrchestrationDriver().releaseTask(taskId);
+            } catch (RuntimeException e) {
+                logger.warning(String.format("Could not release resources of task %s: %s", taskId, e.getMessage()));
+            }
+            store.removeTask(taskId);
+            outputSizes.remove(taskId);
+        });
+        candidate.getFlowInstanceIds().forEach(flowInstanceId -> {
+            context.getExecutableRegistry().unregisterFlowInstance(flowInstanceId);
+            store.removeFlowInstance(flowInstanceId);
+        });
+    }
+
+    @Builder
+    @Getter
+    private static class RetentionCandidate {
+        private String id;
+        private String definitionId;
+        private LocalDateTime terminatedAt;
+        private List<String> taskIds;
+        private List<String> flowInstanceIds;
+    }
+}
@@ -2,6 +2,7 @@ package io.scicast.streamesh.core.internal.reflect.handler;
 
 import io.scicast.streamesh.core.MicroPipe;
 import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowPipe;
 import io.scicast.streamesh.core.internal.reflect.GraphContext;
 import io.scicast.streamesh.core.internal.reflect.GraphNode;
 
@@ -14,7 +15,11 @@ public class MicroPipeGraphNodeHandler implements GraphNodeHandler {
         FlowGraph graph = context.getGraph();
         MicroPipe target = (MicroPipe) context.getTarget();
         String microPipeNodeName = context.getPath().stream().collect(Collectors.joining("."));
-        graph.createNode(microPipeNodeName, context.getTarget(), GraphNode.NodeType.INTERNAL);
+        FlowPipe pipe = getPipe(context);
+        if (pipe != null && pipe.getForeach() != null) {
+            validateForeach(pipe, target);
+        }
+        graph.createNode(microPipeNodeName, context.getTarget(), GraphNode.NodeType.INTERNAL, pipe);
 
         target.getOutputMapping().forEach(output -> {
             List<String> outputPath = context.getScope().getPathByValue(output, context.getPath());
@@ -32,4 +37,22 @@ public class MicroPipeGraphNodeHandler implements GraphNodeHandler {
 
         return graph;
     }
+
+    private FlowPipe getPipe(GraphContext context) {
+        List<String> path = context.getPath();
+        Object parent = path.isEmpty() ? null : context.getScope().getValue(path.subList(0, path.size() - 1));
+        return parent instanceof FlowPipe ? (FlowPipe) parent : null;
+    }
+
+    private void validateForeach(FlowPipe pipe, MicroPipe target) {
+        boolean known = target.getInputMapping().getParameters().stream()
+                .anyMatch(parameter -> parameter.getName().equals(pipe.getForeach()));
+        if (!known) {
+            throw new IllegalArgumentException(String.format("Pipe %s cannot run for each value of %s: %s has no such input.",
+                    pipe.getAs(), pipe.getForeach(), target.getName()));
+        }
+        if (pipe.getParallelism() < 0) {
+            throw new IllegalArgumentException(String.format("The parallelism of pipe %s cannot be negative.", pipe.getAs()));
+        }
+    }
 }
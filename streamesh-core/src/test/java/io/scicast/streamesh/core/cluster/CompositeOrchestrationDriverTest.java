@@ -0,0 +1,106 @@
+package io.scicast.streamesh.core.cluster;
+
+import io.scicast.streamesh.core.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CompositeOrchestrationDriverTest {
+
+    private OrchestrationDriver first;
+    private OrchestrationDriver second;
+    private CompositeOrchestrationDriver driver;
+    private final Map<String, Consumer<TaskExecutionEvent<?>>> handlers = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        first = fakeDriver();
+        second = fakeDriver();
+        driver = new CompositeOrchestrationDriver(Arrays.asList(
+                WorkerNode.builder().id("first").driver(first).build(),
+                WorkerNode.builder().id("second").driver(second).build()), 1);
+    }
+
+    @Test
+    public void testTasksGoToTheLeastBusyNode() {
+        assertEquals("first", schedule("t1", Collections.emptyMap()).getNodeId());
+        assertEquals("second", schedule("t2", Collections.emptyMap()).getNodeId());
+
+        complete("t1");
+        assertEquals("first", schedule("t3", Collections.emptyMap()).getNodeId());
+        assertEquals(1, driver.getActiveTasks("first"));
+        assertEquals(1, driver.getActiveTasks("second"));
+    }
+
+    @Test
+    public void testTasksStayNextToTheirUpstreamOutputs() {
+        schedule("upstream", Collections.emptyMap());
+        complete("upstream");
+        schedule("other", Collections.emptyMap());
+
+        TaskDescriptor downstream = schedule("downstream",
+                Collections.singletonMap("input", "http://streamesh-server:8081/api/v1/tasks/upstream/output"));
+
+        assertEquals("first", downstream.getNodeId());
+    }
+
+    @Test
+    public void testOutputsAreServedByTheOwningNode() {
+        schedule("t1", Collections.emptyMap());
+        schedule("t2", Collections.emptyMap());
+        InputStream output = new ByteArrayInputStream(new byte[0]);
+        when(second.getTaskOutput("t2", "out")).thenReturn(output);
+
+        assertSame(output, driver.getTaskOutput("t2", "out"));
+        verify(first, never()).getTaskOutput(any(), any());
+    }
+
+    @Test
+    public void testTasksRefusedByANodeArePlacedOnTheNextOne() {
+        doThrow(new RuntimeException("daemon unreachable")).when(first).scheduleTask(any(), any(), any());
+
+        assertEquals("second", schedule("t1", Collections.emptyMap()).getNodeId());
+        assertEquals(0, driver.getActiveTasks("first"));
+    }
+
+    private OrchestrationDriver fakeDriver() {
+        OrchestrationDriver fake = mock(OrchestrationDriver.class);
+        when(fake.scheduleTask(any(), any(), any())).thenAnswer(invocation -> {
+            TaskExecutionIntent intent = invocation.getArgument(0);
+            handlers.put(intent.getTaskId(), invocation.getArgument(1));
+            return TaskDescriptor.builder()
+                    .id(intent.getTaskId())
+                    .status(TaskDescriptor.TaskStatus.LAUNCHING)
+                    .build();
+        });
+        return fake;
+    }
+
+    private TaskDescriptor schedule(String taskId, Map<?, ?> input) {
+        return driver.scheduleTask(TaskExecutionIntent.builder()
+                .taskId(taskId)
+                .runtimeInput(input)
+                .build(), event -> { }, null);
+    }
+
+    private void complete(String taskId) {
+        handlers.get(taskId).accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(TaskDescriptor.builder()
+                        .id(taskId)
+                        .status(TaskDescriptor.TaskStatus.COMPLETE)
+                        .build())
+                .build());
+    }
+}
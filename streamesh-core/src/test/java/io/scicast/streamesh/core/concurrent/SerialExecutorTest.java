@@ -0,0 +1,134 @@
+package io.scicast.streamesh.core.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SerialExecutorTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int TASKS_PER_PRODUCER = 1000;
+
+    private ExecutionEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = ExecutionEngine.builder()
+                .threads(4)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testTasksRunOneAtATimeInSubmissionOrder() throws InterruptedException {
+        SerialExecutor mailbox = new SerialExecutor(engine);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<List<Integer>> seen = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(PRODUCERS * TASKS_PER_PRODUCER);
+        for (int p = 0; p < PRODUCERS; p++) {
+            seen.add(new ArrayList<>());
+        }
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            new Thread(() -> {
+                for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                    int sequence = i;
+                    mailbox.execute(() -> {
+                        if (running.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        seen.get(producer).add(sequence);
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        seen.forEach(sequences -> {
+            assertEquals(TASKS_PER_PRODUCER, sequences.size());
+            for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                assertEquals(i, sequences.get(i).intValue());
+            }
+        });
+    }
+
+    @Test
+    public void testSuspendedMailboxRunsTasksOnlyOnceResumed() throws InterruptedException {
+        SerialExecutor mailbox = SerialExecutor.suspended(engine);
+        CountDownLatch done = new CountDownLatch(1);
+        mailbox.execute(done::countDown);
+
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        mailbox.resume();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSaturatedEngineDrainsMailboxesOnItsOwnThreads() throws InterruptedException {
+        ExecutionEngine saturated = ExecutionEngine.builder()
+                .threads(1)
+                .queueCapacity(1)
+                .build();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            saturated.execute(() -> awaitQuietly(release));
+            saturated.execute(() -> awaitQuietly(release));
+            assertEquals(0, saturated.getAvailablePermits());
+
+            SerialExecutor mailbox = new SerialExecutor(saturated);
+            Thread submitter = Thread.currentThread();
+            AtomicInteger onSubmitter = new AtomicInteger();
+            AtomicInteger remaining = new AtomicInteger(TASKS_PER_PRODUCER * 10);
+            AtomicInteger maxDepth = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(1);
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    if (Thread.currentThread() == submitter) {
+                        onSubmitter.incrementAndGet();
+                    }
+                    maxDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+                    // Each task submits the next one, so that every drain reschedules another.
+                    if (remaining.decrementAndGet() > 0) {
+                        mailbox.execute(this);
+                    } else {
+                        done.countDown();
+                    }
+                }
+            };
+            mailbox.execute(task);
+            release.countDown();
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, onSubmitter.get());
+            assertTrue("Drains must not nest, stack depth was " + maxDepth.get(), maxDepth.get() < 100);
+        } finally {
+            saturated.shutdown();
+        }
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package io.scicast.streamesh.core.flow.execution;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.scicast.streamesh.core.DataTransport;
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.flow.FlowDefinition;
+import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowGraphBuilder;
+import io.scicast.streamesh.core.flow.FlowParameter;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ExecutionGraphTest {
+
+    private static final String MICROPIPES_PATH = "/micropipes/";
+
+    private ObjectMapper mapper = new YAMLMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private ScopeFactory factory;
+    private FlowGraph flowGraph;
+    private ExecutionGraph graph;
+
+    @Before
+    public void setUp() throws IOException {
+        InMemoryStreameshStore store = new InMemoryStreameshStore();
+        Stream.of("http-data-merger.yml", "python-plotter.yml", "s3-downloader.yml", "simple-db-reader.yml")
+                .forEach(resource -> store.storeDefinition(loadDefinition(MICROPIPES_PATH + resource, MicroPipe.class)
+                        .withId(UUID.randomUUID().toString())));
+        factory = ScopeFactory.builder()
+                .streameshContext(StreameshContext.builder()
+                        .store(store)
+                        .build())
+                .build();
+        flowGraph = buildFlowGraph("/flows/airbnb-flow.yml");
+        graph = new ExecutionGraph(flowGraph);
+    }
+
+    @Test
+    public void testNodesAreIndexedByNameAndType() {
+        graph.getNodes().forEach(node -> assertSame(node, graph.getNode(node.getName())));
+        assertEquals(6, graph.getInputNodes().size());
+        assertEquals(2, graph.getOutputNodes().size());
+        assertNull(graph.getNode("unknown"));
+    }
+
+    @Test
+    public void testReadyNodesFollowNotifications() {
+        assertEquals(pipeNodeNames("db-reader"), readyNodeNames());
+
+        graph.getInputNodes().forEach(node -> node.update(RuntimeDataValue.builder()
+                .parts(Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
+                        .refName(((FlowParameter) node.getStaticGraphNode().getValue()).getName())
+                        .value("value")
+                        .state(RuntimeDataValue.DataState.COMPLETE)
+                        .build())
+                        .collect(Collectors.toSet()))
+                .build()));
+        assertEquals(pipeNodeNames("db-reader", "s3-manhattan", "s3-others"), readyNodeNames());
+
+        graph.getExecutableNodes().forEach(node -> node.setRunning(true));
+        assertTrue(graph.getExecutableNodes().isEmpty());
+    }
+
+    @Test
+    public void testReadyNodesFollowRestoredState() {
+        Set<RuntimeNodeState> states = graph.captureState();
+        graph.getExecutableNodes().forEach(node -> node.setRunning(true));
+        assertTrue(graph.getExecutableNodes().isEmpty());
+
+        graph.restoreState(states);
+        assertEquals(pipeNodeNames("db-reader"), readyNodeNames());
+    }
+
+    @Test
+    public void testScheduledNodesAreIndexedByExecutableId() {
+        MicroPipeRuntimeNode node = (MicroPipeRuntimeNode) graph.getExecutableNodes().iterator().next();
+        node.setTaskId("task-id");
+        graph.registerExecutable("task-id", node);
+        Set<RuntimeNodeState> states = graph.captureState();
+
+        ExecutionGraph restored = new ExecutionGraph(flowGraph);
+        restored.restoreState(states);
+
+        assertSame(node, graph.getExecutableNode("task-id"));
+        assertEquals(node.getName(), restored.getExecutableNode("task-id").getName());
+        assertEquals(1, restored.getScheduledNodes().size());
+    }
+
+    @Test
+    public void testGraphsBuiltFromOnePlanAreIndependent() {
+        ExecutionPlan plan = ExecutionPlan.compile(flowGraph);
+        ExecutionGraph first = new ExecutionGraph(plan);
+        ExecutionGraph second = new ExecutionGraph(plan);
+        assertEquals(flowGraph.getNodes().size(), plan.size());
+
+        first.getExecutableNodes().forEach(node -> node.setRunning(true));
+
+        assertTrue(first.getExecutableNodes().isEmpty());
+        assertEquals(pipeNodeNames("db-reader"), second.getExecutableNodes().stream()
+                .map(RuntimeNode::getName)
+                .collect(Collectors.toSet()));
+        first.getNodes().forEach(node -> assertNotSame(node, second.getNode(node.getName())));
+    }
+
+    @Test
+    public void testPipeNodesKnowTheTransportOfTheirInputs() {
+        ExecutionGraph graph = new ExecutionGraph(buildFlowGraph("/flows/volume-transport-flow.yml"));
+        MicroPipeRuntimeNode plotter = (MicroPipeRuntimeNode) graph.getNode("plotter.type");
+        MicroPipeRuntimeNode merger = (MicroPipeRuntimeNode) graph.getNode("merger.type");
+
+        assertEquals(DataTransport.VOLUME, plotter.getInputTransports().get("dataset"));
+        assertEquals(DataTransport.HTTP, merger.getInputTransports().get("urls"));
+    }
+
+    @Test
+    public void testForeachPipesRunOneTaskPerValueAndGatherTheirOutputs() {
+        FlowGraph flowGraph = buildFlowGraph("/flows/foreach-flow.yml");
+        ExecutionGraph graph = new ExecutionGraph(flowGraph);
+        MicroPipeRuntimeNode plotter = (MicroPipeRuntimeNode) graph.getNode("plotter.type");
+        List<RuntimeNode> notifications = new ArrayList<>();
+        plotter.addObserver(notifications::add);
+        plotter.getPipeInput().put("dataset", Arrays.asList("a", "b", "c"));
+
+        assertEquals("a", plotter.nextElementInput().get().get("dataset"));
+        plotter.addElementTask("t1");
+        assertEquals("b", plotter.nextElementInput().get().get("dataset"));
+        plotter.addElementTask("t2");
+        assertFalse(plotter.nextElementInput().isPresent());
+
+        plotter.elementTerminated("t1", TaskDescriptor.TaskStatus.COMPLETE);
+        plotter.update(plot("t1"));
+        assertEquals("c", plotter.nextElementInput().get().get("dataset"));
+        plotter.addElementTask("t3");
+        graph.registerExecutable("t3", plotter);
+        assertEquals(new HashSet<>(Arrays.asList("t2", "t3")), new HashSet<>(plotter.getTaskIds()));
+        assertTrue(notifications.isEmpty());
+
+        ExecutionGraph restored = new ExecutionGraph(flowGraph);
+        restored.restoreState(graph.captureState());
+        assertSame(restored.getNode("plotter.type"), restored.getExecutableNode("t3"));
+
+        Stream.of("t2", "t3").forEach(taskId -> {
+            plotter.elementTerminated(taskId, TaskDescriptor.TaskStatus.COMPLETE);
+            plotter.update(plot(taskId));
+        });
+        assertEquals(1, notifications.size());
+        assertEquals(3, plotter.getValue().getParts().size());
+    }
+
+    @Test
+    public void testForeachPipesGatherEmptyListsWithoutRunningTasks() {
+        MicroPipeRuntimeNode plotter = (MicroPipeRuntimeNode) new ExecutionGraph(buildFlowGraph("/flows/foreach-flow.yml"))
+                .getNode("plotter.type");
+        List<RuntimeNode> notifications = new ArrayList<>();
+        plotter.addObserver(notifications::add);
+        plotter.getPipeInput().put("dataset", Collections.emptyList());
+
+        assertFalse(plotter.nextElementInput().isPresent());
+        assertTrue(plotter.gatherIfEmpty());
+        assertEquals(1, notifications.size());
+        assertTrue(plotter.getValue().getParts().isEmpty());
+    }
+
+    @Test
+    public void testForeachPipesFailWhenATaskDoesNotComplete() {
+        MicroPipeRuntimeNode plotter = (MicroPipeRuntimeNode) new ExecutionGraph(buildFlowGraph("/flows/foreach-flow.yml"))
+                .getNode("plotter.type");
+        List<RuntimeNode> notifications = new ArrayList<>();
+        plotter.addObserver(notifications::add);
+        plotter.getPipeInput().put("dataset", Arrays.asList("a", "b", "c"));
+        plotter.addElementTask("t1");
+        plotter.addElementTask("t2");
+
+        plotter.elementTerminated("t1", TaskDescriptor.TaskStatus.FAILED);
+
+        assertTrue(plotter.isFailed());
+        assertFalse(plotter.gatherIfEmpty());
+        assertFalse(plotter.nextElementInput().isPresent());
+        assertEquals(Collections.singletonList("t2"), new ArrayList<>(plotter.getTaskIds()));
+        plotter.elementTerminated("t2", TaskDescriptor.TaskStatus.COMPLETE);
+        plotter.update(plot("t2"));
+        assertTrue(notifications.isEmpty());
+    }
+
+    private RuntimeDataValue plot(String taskId) {
+        return RuntimeDataValue.builder()
+                .parts(Stream.of(RuntimeDataValue.RuntimeDataValuePart.builder()
+                        .refName("plot")
+                        .value("/tasks/" + taskId + "/plot")
+                        .state(RuntimeDataValue.DataState.COMPLETE)
+                        .build())
+                        .collect(Collectors.toSet()))
+                .build();
+    }
+
+    private Set<String> readyNodeNames() {
+        return graph.getExecutableNodes().stream()
+                .map(RuntimeNode::getName)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> pipeNodeNames(String... pipes) {
+        return Stream.of(pipes)
+                .map(pipe -> pipe + ".type")
+                .collect(Collectors.toSet());
+    }
+
+    private FlowGraph buildFlowGraph(String resource) {
+        return new FlowGraphBuilder().build(factory.create(loadDefinition(resource, FlowDefinition.class)));
+    }
+
+    private <T> T loadDefinition(String resource, Class<T> clazz) {
+        try {
+            return mapper.reader().forType(clazz).readValue(ExecutionGraphTest.class.getResource(resource));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
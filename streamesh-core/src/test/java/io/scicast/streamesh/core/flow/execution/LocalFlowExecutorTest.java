@@ -0,0 +1,117 @@
+package io.scicast.streamesh.core.flow.execution;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import io.scicast.streamesh.core.flow.FlowDefinition;
+import io.scicast.streamesh.core.flow.FlowGraphBuilder;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LocalFlowExecutorTest {
+
+    private static final String MICROPIPES_PATH = "/micropipes/";
+    private static final String INSTANCE_ID = "empty-foreach-instance";
+
+    private ObjectMapper mapper = new YAMLMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private InMemoryStreameshStore store;
+    private StreameshOrchestrator orchestrator;
+    private ExecutionEngine engine;
+    private StreameshContext context;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryStreameshStore();
+        Stream.of("http-data-merger.yml", "python-plotter.yml")
+                .forEach(resource -> store.storeDefinition(loadDefinition(MICROPIPES_PATH + resource, MicroPipe.class)
+                        .withId(UUID.randomUUID().toString())));
+        orchestrator = mock(StreameshOrchestrator.class);
+        engine = ExecutionEngine.builder()
+                .threads(2)
+                .build();
+        context = StreameshContext.builder()
+                .store(store)
+                .orchestrator(orchestrator)
+                .executionEngine(engine)
+                .serverInfo(StreameshServerInfo.builder()
+                        .host("localhost")
+                        .port(8080)
+                        .protocol(StreameshServerInfo.WebProtocol.http)
+                        .baseApiPath("/api/v1")
+                        .build())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testForeachOverAnEmptyListCompletesTheFlow() throws InterruptedException {
+        FlowDefinition flow = loadDefinition("/flows/empty-foreach-flow.yml", FlowDefinition.class)
+                .withId(UUID.randomUUID().toString());
+        flow = flow.withGraph(new FlowGraphBuilder().build(ScopeFactory.builder()
+                .streameshContext(context)
+                .build()
+                .create(flow)));
+
+        FlowInstance instance = new LocalFlowExecutor(context)
+                .execute(flow, INSTANCE_ID, Collections.singletonMap("datasets", Collections.emptyList()), event -> { });
+
+        assertEquals(FlowInstance.FlowInstanceStatus.RUNNING, instance.getStatus());
+        // The plots are complete straight away, the merged output waits for the task of the merger.
+        assertEquals(1, instance.getExecutionGraph().getOutputNodes().stream()
+                .filter(FlowOutputRuntimeNode::isComplete)
+                .count());
+        ArgumentCaptor<String> taskId = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Map<?, ?>> input = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Consumer<TaskExecutionEvent<?>>> handler = ArgumentCaptor.forClass(Consumer.class);
+        // Only the pipe consuming the empty value runs a task.
+        verify(orchestrator, times(1)).scheduleTask(anyString(), taskId.capture(), eq(INSTANCE_ID), input.capture(),
+                anyMap(), handler.capture());
+        assertEquals(Collections.emptyList(), input.getValue().get("urls"));
+
+        handler.getValue().accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(TaskDescriptor.builder()
+                        .id(taskId.getValue())
+                        .status(TaskDescriptor.TaskStatus.COMPLETE)
+                        .build())
+                .build());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!FlowInstance.FlowInstanceStatus.COMPLETE.equals(store.getFlowInstance(INSTANCE_ID).getStatus())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(FlowInstance.FlowInstanceStatus.COMPLETE, store.getFlowInstance(INSTANCE_ID).getStatus());
+    }
+
+    private <T> T loadDefinition(String resource, Class<T> clazz) {
+        try {
+            return mapper.reader().forType(clazz).readValue(LocalFlowExecutorTest.class.getResource(resource));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
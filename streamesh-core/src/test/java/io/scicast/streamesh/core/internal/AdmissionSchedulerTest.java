@@ -0,0 +1,148 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.TaskPriority;
+import io.scicast.streamesh.core.exception.CapacityExceededException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AdmissionSchedulerTest {
+
+    private final List<String> launched = new ArrayList<>();
+
+    @Test
+    public void testGlobalLimitQueuesTasksUntilSlotsAreReleased() {
+        AdmissionScheduler scheduler = scheduler(2, 0, 0);
+        submit(scheduler, "t1", "pipe", null, TaskPriority.NORMAL, 0);
+        submit(scheduler, "t2", "pipe", null, TaskPriority.NORMAL, 0);
+        submit(scheduler, "t3", "pipe", null, TaskPriority.NORMAL, 0);
+
+        assertEquals(Arrays.asList("t1", "t2"), launched);
+        assertEquals(1, scheduler.getMetrics().getQueued());
+
+        scheduler.release("t1");
+        assertEquals(Arrays.asList("t1", "t2", "t3"), launched);
+        assertEquals(0, scheduler.getMetrics().getQueued());
+        assertEquals(2, scheduler.getMetrics().getRunning());
+    }
+
+    @Test
+    public void testPerDefinitionLimitLetsOtherDefinitionsThrough() {
+        AdmissionScheduler scheduler = scheduler(10, 0, 0);
+        submit(scheduler, "a1", "a", null, TaskPriority.NORMAL, 1);
+        submit(scheduler, "a2", "a", "flow-1", TaskPriority.NORMAL, 1);
+        submit(scheduler, "b1", "b", "flow-2", TaskPriority.NORMAL, 1);
+
+        assertEquals(Arrays.asList("a1", "b1"), launched);
+
+        scheduler.release("a1");
+        assertEquals(Arrays.asList("a1", "b1", "a2"), launched);
+    }
+
+    @Test
+    public void testHigherPrioritiesGoFirstAndFlowInstancesTakeTurns() {
+        AdmissionScheduler scheduler = scheduler(1, 0, 0);
+        submit(scheduler, "blocker", "pipe", null, TaskPriority.NORMAL, 0);
+        submit(scheduler, "f1-1", "pipe", "flow-1", TaskPriority.NORMAL, 0);
+        submit(scheduler, "f1-2", "pipe", "flow-1", TaskPriority.NORMAL, 0);
+        submit(scheduler, "f1-3", "pipe", "flow-1", TaskPriority.NORMAL, 0);
+        submit(scheduler, "f2-1", "pipe", "flow-2", TaskPriority.NORMAL, 0);
+        submit(scheduler, "low", "pipe", null, TaskPriority.LOW, 0);
+        submit(scheduler, "high", "pipe", null, TaskPriority.HIGH, 0);
+
+        for (int i = 0; i < 6; i++) {
+            scheduler.release(launched.get(launched.size() - 1));
+        }
+
+        assertEquals(Arrays.asList("blocker", "high", "f1-1", "f2-1", "f1-2", "f1-3", "low"), launched);
+    }
+
+    @Test
+    public void testCancelledTasksAreNeverLaunched() {
+        AdmissionScheduler scheduler = scheduler(1, 0, 0);
+        submit(scheduler, "t1", "pipe", null, TaskPriority.NORMAL, 0);
+        submit(scheduler, "t2", "pipe", null, TaskPriority.NORMAL, 0);
+
+        assertTrue(scheduler.cancel("t2"));
+        assertFalse(scheduler.cancel("t1"));
+        scheduler.release("t1");
+
+        assertEquals(Arrays.asList("t1"), launched);
+    }
+
+    @Test
+    public void testStandaloneTasksAreRejectedWhenTheQueueIsFull() {
+        AdmissionScheduler scheduler = scheduler(1, 0, 1);
+        submit(scheduler, "t1", "pipe", null, TaskPriority.NORMAL, 0);
+        submit(scheduler, "t2", "pipe", null, TaskPriority.NORMAL, 0);
+        try {
+            submit(scheduler, "t3", "pipe", null, TaskPriority.NORMAL, 0);
+            fail("The queue is full.");
+        } catch (CapacityExceededException e) {
+            // expected
+        }
+        submit(scheduler, "f1", "pipe", "flow-1", TaskPriority.NORMAL, 0);
+
+        assertEquals(2, scheduler.getMetrics().getQueued());
+        assertEquals(1, scheduler.getMetrics().getRejected());
+    }
+
+    @Test
+    public void testTasksAreAdmittedWhenTheirResourcesFit() {
+        AdmissionScheduler scheduler = AdmissionScheduler.builder()
+                .cpuCapacity(2)
+                .memoryCapacity(1024)
+                .build();
+        submit(scheduler, "big", 1.5, 512);
+        submit(scheduler, "wide", 1, 256);
+        submit(scheduler, "small", 0.5, 512);
+
+        assertEquals(Arrays.asList("big", "small"), launched);
+        assertEquals(2.0, scheduler.getMetrics().getAllocatedCpu(), 1e-9);
+        assertEquals(1024, scheduler.getMetrics().getAllocatedMemory());
+
+        scheduler.release("big");
+        assertEquals(Arrays.asList("big", "small", "wide"), launched);
+        try {
+            submit(scheduler, "huge", 4, 0);
+            fail("The task can never fit on the host.");
+        } catch (CapacityExceededException e) {
+            // expected
+        }
+    }
+
+    private AdmissionScheduler scheduler(int maxRunning, int maxRunningPerDefinition, int queueCapacity) {
+        return AdmissionScheduler.builder()
+                .maxRunning(maxRunning)
+                .maxRunningPerDefinition(maxRunningPerDefinition)
+                .queueCapacity(queueCapacity)
+                .build();
+    }
+
+    private void submit(AdmissionScheduler scheduler, String taskId, double cpu, long memoryBytes) {
+        scheduler.submit(AdmissionScheduler.Request.builder()
+                .taskId(taskId)
+                .definitionId("pipe")
+                .flowInstanceId(taskId)
+                .cpu(cpu)
+                .memoryBytes(memoryBytes)
+                .launch(() -> launched.add(taskId))
+                .build());
+    }
+
+    private void submit(AdmissionScheduler scheduler, String taskId, String definitionId, String flowInstanceId,
+                        TaskPriority priority, int maxConcurrency) {
+        scheduler.submit(AdmissionScheduler.Request.builder()
+                .taskId(taskId)
+                .definitionId(definitionId)
+                .flowInstanceId(flowInstanceId)
+                .priority(priority)
+                .maxConcurrency(maxConcurrency)
+                .launch(() -> launched.add(taskId))
+                .build());
+    }
+}
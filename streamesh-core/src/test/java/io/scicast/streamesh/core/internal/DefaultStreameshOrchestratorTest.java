@@ -0,0 +1,68 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.OrchestrationDriver;
+import io.scicast.streamesh.core.exception.DefinitionNotReadyException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DefaultStreameshOrchestratorTest {
+
+    private static final String IMAGE = "streamesh/test-pipe";
+
+    private OrchestrationDriver driver;
+    private DefaultStreameshOrchestrator orchestrator;
+    private CompletableFuture<String> image;
+
+    @Before
+    public void setUp() {
+        driver = mock(OrchestrationDriver.class);
+        image = new CompletableFuture<>();
+        when(driver.retrieveContainerImage(IMAGE)).thenReturn(image);
+        orchestrator = new DefaultStreameshOrchestrator("127.0.0.1", driver, new InMemoryStreameshStore());
+    }
+
+    @Test
+    public void testMicroPipesBecomeReadyOnceTheirImageIsResolved() {
+        String definitionId = orchestrator.applyDefinition(microPipe());
+        assertEquals(MicroPipe.Status.PENDING_IMAGE, ((MicroPipe) orchestrator.getDefinition(definitionId)).getStatus());
+        try {
+            orchestrator.scheduleTask(definitionId, Collections.emptyMap());
+            fail("Tasks cannot be scheduled before the image is available.");
+        } catch (DefinitionNotReadyException e) {
+            // expected
+        }
+
+        image.complete("sha256:test");
+
+        MicroPipe ready = (MicroPipe) orchestrator.getDefinition(definitionId);
+        assertEquals(MicroPipe.Status.READY, ready.getStatus());
+        assertEquals("sha256:test", ready.getImageId());
+        verify(driver, times(1)).retrieveContainerImage(IMAGE);
+    }
+
+    @Test
+    public void testMicroPipesFailWhenTheirImageCannotBeResolved() {
+        String definitionId = orchestrator.applyDefinition(microPipe());
+
+        image.completeExceptionally(new RuntimeException("pull access denied"));
+
+        MicroPipe failed = (MicroPipe) orchestrator.getDefinition(definitionId);
+        assertEquals(MicroPipe.Status.FAILED, failed.getStatus());
+        assertTrue(failed.getStatusMessage().contains("pull access denied"));
+    }
+
+    private MicroPipe microPipe() {
+        return MicroPipe.builder()
+                .name("test-pipe")
+                .type("micropipe")
+                .image(IMAGE)
+                .build();
+    }
+}
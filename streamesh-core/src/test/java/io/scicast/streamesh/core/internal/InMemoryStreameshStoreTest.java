@@ -0,0 +1,114 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.exception.NotFoundException;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemoryStreameshStoreTest {
+
+    private InMemoryStreameshStore store;
+    private MicroPipe pipe;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryStreameshStore();
+        pipe = MicroPipe.builder()
+                .id(UUID.randomUUID().toString())
+                .name("test-pipe")
+                .build();
+        store.storeDefinition(pipe);
+    }
+
+    @Test
+    public void testTaskIndexesFollowUpdates() {
+        TaskDescriptor task = task("task-1", "flow-1", TaskDescriptor.TaskStatus.RUNNING);
+        store.updateTask(pipe.getId(), task);
+
+        assertEquals(1, store.getTasksByDefinition(pipe.getId()).size());
+        assertEquals(1, store.getTasksByFlowInstance("flow-1").size());
+        assertEquals(1, store.getTasksByStatus(TaskDescriptor.TaskStatus.RUNNING).size());
+
+        store.updateTask(pipe.getId(), task.withStatus(TaskDescriptor.TaskStatus.COMPLETE));
+
+        assertTrue(store.getTasksByStatus(TaskDescriptor.TaskStatus.RUNNING).isEmpty());
+        assertEquals(TaskDescriptor.TaskStatus.COMPLETE,
+                store.getTasksByStatus(TaskDescriptor.TaskStatus.COMPLETE).iterator().next().getStatus());
+        assertEquals(TaskDescriptor.TaskStatus.COMPLETE,
+                store.getTasksByFlowInstance("flow-1").iterator().next().getStatus());
+
+        store.removeTask(task.getId());
+
+        assertTrue(store.getAllTasks().isEmpty());
+        assertTrue(store.getTasksByDefinition(pipe.getId()).isEmpty());
+        assertTrue(store.getTasksByFlowInstance("flow-1").isEmpty());
+        assertTrue(store.getTasksByStatus(TaskDescriptor.TaskStatus.COMPLETE).isEmpty());
+    }
+
+    @Test
+    public void testFlowInstancesAreIndexedById() {
+        FlowInstance instance = FlowInstance.builder()
+                .id("flow-1")
+                .definitionId("flow-definition")
+                .status(FlowInstance.FlowInstanceStatus.RUNNING)
+                .build();
+        store.storeFlowInstance(instance);
+        store.storeFlowInstance(instance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE));
+
+        Set<FlowInstance> instances = store.getFlowInstancesByDefinition("flow-definition");
+        assertEquals(1, instances.size());
+        assertEquals(FlowInstance.FlowInstanceStatus.COMPLETE, instances.iterator().next().getStatus());
+
+        store.removeFlowInstance("flow-1");
+        assertTrue(store.getFlowInstancesByDefinition("flow-definition").isEmpty());
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void testMissingTaskIsReportedAsNotFound() {
+        store.getTaskById("unknown");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testQueriesAreReadOnly() {
+        store.updateTask(pipe.getId(), task("task-1", null, TaskDescriptor.TaskStatus.RUNNING));
+        store.getAllTasks().iterator().remove();
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            TaskDescriptor task = task("task-" + i, "flow-" + (i % 10), TaskDescriptor.TaskStatus.RUNNING);
+            executor.execute(() -> {
+                store.updateTask(pipe.getId(), task);
+                store.updateTask(pipe.getId(), task.withStatus(TaskDescriptor.TaskStatus.COMPLETE));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, store.getTasksByDefinition(pipe.getId()).size());
+        assertEquals(100, store.getTasksByFlowInstance("flow-3").size());
+        assertEquals(1000, store.getTasksByStatus(TaskDescriptor.TaskStatus.COMPLETE).size());
+        assertTrue(store.getTasksByStatus(TaskDescriptor.TaskStatus.RUNNING).isEmpty());
+    }
+
+    private TaskDescriptor task(String id, String flowInstanceId, TaskDescriptor.TaskStatus status) {
+        return TaskDescriptor.builder()
+                .id(id)
+                .serviceId(pipe.getId())
+                .flowInstanceId(flowInstanceId)
+                .status(status)
+                .build();
+    }
+}
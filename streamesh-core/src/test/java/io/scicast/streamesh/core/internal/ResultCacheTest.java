@@ -0,0 +1,165 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.OrchestrationDriver;
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.TaskExecutionEvent;
+import io.scicast.streamesh.core.TaskOutputDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ResultCacheTest {
+
+    private static final Set<String> NO_IGNORED_INPUTS = Collections.emptySet();
+
+    private InMemoryStreameshStore store;
+    private OrchestrationDriver driver;
+    private StreameshContext context;
+    private MicroPipe pipe;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryStreameshStore();
+        driver = mock(OrchestrationDriver.class);
+        context = StreameshContext.builder()
+                .store(store)
+                .orchestrationDriver(driver)
+                .build();
+        pipe = MicroPipe.builder()
+                .id("pipe-id")
+                .name("test-pipe")
+                .imageId("sha256:test")
+                .cacheable(true)
+                .build();
+        store.storeDefinition(pipe);
+    }
+
+    @Test
+    public void testKeysOnlyDependOnTheDefinitionImageAndInput() {
+        ResultCache cache = cache(10);
+        String key = cache.key(pipe, input("a", "1", "b", "2"), NO_IGNORED_INPUTS);
+
+        assertEquals(key, cache.key(pipe, input("b", "2", "a", "1"), NO_IGNORED_INPUTS));
+        assertEquals(key, cache.key(pipe, input("a", "1", "b", "2", "priority", "HIGH"), Collections.singleton("priority")));
+        assertNotEquals(key, cache.key(pipe, input("a", "1", "b", "3"), NO_IGNORED_INPUTS));
+        assertNotEquals(key, cache.key(pipe.withImageId("sha256:other"), input("a", "1", "b", "2"), NO_IGNORED_INPUTS));
+    }
+
+    @Test
+    public void testOutputsOfCachedTasksAreReferredToByTheirProducer() {
+        store.updateTask(pipe.getId(), TaskDescriptor.builder()
+                .id("served-from-cache")
+                .cachedFrom("producer")
+                .build());
+        ResultCache cache = cache(10);
+
+        assertEquals(cache.key(pipe, input("data", "http://host/api/v1/tasks/producer/output"), NO_IGNORED_INPUTS),
+                cache.key(pipe, input("data", "http://host/api/v1/tasks/served-from-cache/output"), NO_IGNORED_INPUTS));
+    }
+
+    @Test
+    public void testCompletedTasksAreCachedWithTheirParts() {
+        ResultCache cache = cache(10);
+        String key = cache.key(pipe, input("a", "1"), NO_IGNORED_INPUTS);
+        assertFalse(cache.lookup(key).isPresent());
+
+        complete(cache, key, "t1");
+
+        ResultCache.Entry entry = cache.lookup(key).get();
+        assertEquals("t1", entry.getTaskId());
+        assertEquals(Arrays.asList("part-1"), entry.getParts().get("output"));
+        assertTrue(cache.isCached("t1"));
+        assertEquals(1, cache.getMetrics().getHits());
+        assertEquals(1, cache.getMetrics().getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvictedAndLeftToRetention() {
+        ResultCache cache = cache(2);
+        complete(cache, "k1", "t1");
+        complete(cache, "k2", "t2");
+        cache.lookup("k1");
+
+        complete(cache, "k3", "t3");
+
+        assertTrue(cache.lookup("k1").isPresent());
+        assertFalse(cache.lookup("k2").isPresent());
+        assertFalse(cache.isCached("t2"));
+        assertEquals(1, cache.getMetrics().getEvictions());
+        verify(driver, never()).releaseTask(anyString());
+    }
+
+    @Test
+    public void testReplacedEntriesAreLeftToRetention() {
+        ResultCache cache = cache(10);
+        complete(cache, "k1", "t1");
+
+        complete(cache, "k1", "t2");
+
+        assertEquals("t2", cache.lookup("k1").get().getTaskId());
+        assertFalse(cache.isCached("t1"));
+        verify(driver, never()).releaseTask(anyString());
+    }
+
+    @Test
+    public void testExpiredEntriesAreUnpinnedWithoutALookup() throws InterruptedException {
+        ResultCache cache = ResultCache.builder()
+                .context(context)
+                .maxEntries(10)
+                .ttlMillis(1)
+                .build();
+        complete(cache, "k1", "t1");
+        complete(cache, "k2", "t2");
+        Thread.sleep(10);
+
+        assertFalse(cache.isCached("t1"));
+        assertFalse(cache.isCached("t2"));
+        assertEquals(0, cache.getMetrics().getEntries());
+        assertEquals(0, cache.getMetrics().getMisses());
+    }
+
+    private void complete(ResultCache cache, String key, String taskId) {
+        Consumer<TaskExecutionEvent<?>> handler = cache.recording(key, taskId, event -> {});
+        handler.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.OUTPUT_AVAILABILITY)
+                .descriptor(TaskOutputDescriptor.builder()
+                        .taskId(taskId)
+                        .outputName("output")
+                        .partName("part-1")
+                        .build())
+                .build());
+        handler.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(TaskDescriptor.builder()
+                        .id(taskId)
+                        .status(TaskDescriptor.TaskStatus.COMPLETE)
+                        .build())
+                .build());
+    }
+
+    private ResultCache cache(int maxEntries) {
+        return ResultCache.builder()
+                .context(context)
+                .maxEntries(maxEntries)
+                .build();
+    }
+
+    private Map<String, String> input(String... namesAndValues) {
+        Map<String, String> input = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            input.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return input;
+    }
+}
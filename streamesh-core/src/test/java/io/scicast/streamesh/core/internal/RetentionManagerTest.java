@@ -0,0 +1,157 @@
+package io.scicast.streamesh.core.internal;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.OrchestrationDriver;
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RetentionManagerTest {
+
+    private InMemoryStreameshStore store;
+    private OrchestrationDriver driver;
+    private StreameshContext context;
+    private MicroPipe pipe;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryStreameshStore();
+        driver = mock(OrchestrationDriver.class);
+        context = StreameshContext.builder()
+                .store(store)
+                .orchestrationDriver(driver)
+                .build();
+        pipe = MicroPipe.builder()
+                .id(UUID.randomUUID().toString())
+                .name("test-pipe")
+                .build();
+        store.storeDefinition(pipe);
+    }
+
+    @Test
+    public void testAgePolicyEvictsOnlyOldTerminatedTasks() {
+        store.updateTask(pipe.getId(), task("old", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), null));
+        store.updateTask(pipe.getId(), task("recent", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now(), null));
+        store.updateTask(pipe.getId(), task("running", TaskDescriptor.TaskStatus.RUNNING, LocalDateTime.now().minusHours(2), null));
+
+        manager(60 * 60 * 1000, 0, 0).sweep();
+
+        assertEquals(2, store.getAllTasks().size());
+        assertNotNull(store.getTaskById("recent"));
+        assertNotNull(store.getTaskById("running"));
+        verify(driver).releaseTask("old");
+    }
+
+    @Test
+    public void testCountPolicyKeepsMostRecentTasks() {
+        for (int i = 0; i < 5; i++) {
+            store.updateTask(pipe.getId(), task("task-" + i, TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusMinutes(10 - i), null));
+        }
+
+        manager(0, 2, 0).sweep();
+
+        assertEquals(2, store.getTasksByDefinition(pipe.getId()).size());
+        assertNotNull(store.getTaskById("task-3"));
+        assertNotNull(store.getTaskById("task-4"));
+    }
+
+    @Test
+    public void testOutputBytesPolicyEvictsOldestFirst() {
+        when(driver.getTaskOutputSize(anyString())).thenReturn(100L);
+        for (int i = 0; i < 5; i++) {
+            store.updateTask(pipe.getId(), task("task-" + i, TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusMinutes(10 - i), null));
+        }
+
+        manager(0, 0, 250).sweep();
+
+        assertEquals(2, store.getAllTasks().size());
+        assertNotNull(store.getTaskById("task-4"));
+    }
+
+    @Test
+    public void testFlowTasksAreEvictedWithTheirFlowInstance() {
+        store.storeFlowInstance(FlowInstance.builder()
+                .id("running-flow")
+                .definitionId("flow-definition")
+                .status(FlowInstance.FlowInstanceStatus.RUNNING)
+                .build());
+        store.storeFlowInstance(FlowInstance.builder()
+                .id("complete-flow")
+                .definitionId("flow-definition")
+                .status(FlowInstance.FlowInstanceStatus.COMPLETE)
+                .completed(LocalDateTime.now().minusHours(2))
+                .build());
+        store.updateTask(pipe.getId(), task("running-flow-task", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), "running-flow"));
+        store.updateTask(pipe.getId(), task("complete-flow-task", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), "complete-flow"));
+
+        manager(60 * 60 * 1000, 0, 0).sweep();
+
+        assertEquals(1, store.getAllFlowInstances().size());
+        assertEquals(1, store.getAllTasks().size());
+        assertNotNull(store.getTaskById("running-flow-task"));
+        verify(driver).releaseTask("complete-flow-task");
+    }
+
+    @Test
+    public void testPinnedTasksAreNeverEvicted() {
+        store.updateTask(pipe.getId(), task("pinned", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), null));
+        store.updateTask(pipe.getId(), task("old", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), null));
+
+        RetentionManager.builder()
+                .context(context)
+                .maxAgeMillis(60 * 60 * 1000)
+                .pinnedTasks("pinned"::equals)
+                .build()
+                .sweep();
+
+        assertEquals(1, store.getAllTasks().size());
+        assertNotNull(store.getTaskById("pinned"));
+        verify(driver, never()).releaseTask("pinned");
+    }
+
+    @Test
+    public void testTasksServingCachedOutputsOutliveTheTasksServedFromThem() {
+        store.updateTask(pipe.getId(), task("producer", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), null));
+        store.updateTask(pipe.getId(), task("served-from-cache", TaskDescriptor.TaskStatus.COMPLETE, LocalDateTime.now().minusHours(2), null)
+                .withCachedFrom("producer"));
+        RetentionManager manager = manager(60 * 60 * 1000, 0, 0);
+
+        manager.sweep();
+        assertEquals(1, store.getAllTasks().size());
+        assertNotNull(store.getTaskById("producer"));
+        verify(driver, never()).releaseTask("producer");
+
+        manager.sweep();
+        assertTrue(store.getAllTasks().isEmpty());
+        verify(driver).releaseTask("producer");
+    }
+
+    private RetentionManager manager(long maxAgeMillis, int maxCountPerDefinition, long maxOutputBytes) {
+        return RetentionManager.builder()
+                .context(context)
+                .maxAgeMillis(maxAgeMillis)
+                .maxCountPerDefinition(maxCountPerDefinition)
+                .maxOutputBytes(maxOutputBytes)
+                .build();
+    }
+
+    private TaskDescriptor task(String id, TaskDescriptor.TaskStatus status, LocalDateTime exited, String flowInstanceId) {
+        return TaskDescriptor.builder()
+                .id(id)
+                .serviceId(pipe.getId())
+                .flowInstanceId(flowInstanceId)
+                .status(status)
+                .started(exited.minusMinutes(1))
+                .exited(exited)
+                .build();
+    }
+}
@@ -1,28 +1,38 @@
 package io.scicast.streamesh.docker.driver;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerCmd;
-import com.github.dockerjava.api.command.CreateContainerResponse;
-import com.github.dockerjava.api.command.ListImagesCmd;
-import com.github.dockerjava.api.command.PullImageCmd;
 import com.github.dockerjava.api.model.*;
+import com.github.dockerjava.core.command.ExecStartResultCallback;
 import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import io.scicast.streamesh.core.concurrent.ExecutionEngineFactory;
 import io.scicast.streamesh.core.exception.NotFoundException;
+import io.scicast.streamesh.docker.driver.internal.ContainerEventMonitor;
+import io.scicast.streamesh.docker.driver.internal.ContainerLauncher;
+import io.scicast.streamesh.docker.driver.internal.DockerClientProvider;
 import io.scicast.streamesh.docker.driver.internal.DockerClientProviderFactory;
-import io.scicast.streamesh.docker.driver.internal.DockerPullStatusManager;
+import io.scicast.streamesh.docker.driver.internal.ImageRegistry;
+import io.scicast.streamesh.docker.driver.internal.OutputDirectoryWatcher;
 import io.scicast.streamesh.docker.driver.internal.TaskRunner;
+import io.scicast.streamesh.docker.driver.internal.WarmContainerPool;
 
-import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,35 +41,43 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
     public static final String TMP_DIR_PROPERTY = "java.io.tmpdir";
     public static final String STREAMESH_DIR = "streamesh";
     public static final String STREAMESH_SERVER_HOST_NAME = "streamesh-server";
+    public static final String WARM_IDLE_CMD_PROPERTY = "streamesh.docker.warm.pool.idle.cmd";
+    private static final String WARM_DIR_PREFIX = "warm-";
+    private static final long WARM_POOL_MAINTENANCE_INTERVAL_MILLIS = 5000;
+    private static final long CPU_PERIOD_MICROS = 100_000;
+    private static final String INPUTS_DIR = "/streamesh/inputs";
+    private static final Pattern TASK_OUTPUT_URL = Pattern.compile("/tasks/([^/]+)/([^/?]+)(?:/parts/([^/?]+))?$");
+    private static final int CPU_SHARES_PER_CORE = 1024;
     private Logger logger = Logger.getLogger(getClass().getName());
-    private DockerClient client = DockerClientProviderFactory.create().getClient();
-
-    private Map<String, List<TaskOutputManager>> outputManagers = new HashMap<>();
-
-    public String retrieveContainerImage(String imageName) {
-        CompletableFuture<String> respFut = new CompletableFuture<>();
-        CompletableFuture<String> pullFut;
-        Optional<Image> image = findImage(computeImageName(imageName), client);
-        if (!image.isPresent()) {
-            pullFut = pullImage(imageName, client);
-        } else {
-            pullFut = CompletableFuture.completedFuture(image.get().getId());
-        }
-
-        pullFut.exceptionally(ex -> {
-            String msg = String.format("An error occurred while pulling image %s - %s",
-                    imageName,
-                    ex.getMessage());
-            logger.warning(msg);
-            respFut.completeExceptionally(new RuntimeException(msg));
-            return null;
-        }).thenAccept(imgId -> {
-            respFut.complete(imgId);
-        });
-        respFut.exceptionally(ex -> {
-            throw new RuntimeException("Could not retrieve the specified image", ex.getCause());
-        });
-        return respFut.join();
+    private final DockerClient client;
+    private ExecutionEngine engine = ExecutionEngineFactory.shared();
+    private final ContainerEventMonitor containerEventMonitor;
+    private OutputDirectoryWatcher outputDirectoryWatcher = new OutputDirectoryWatcher();
+    private ContainerLauncher launcher = new ContainerLauncher(engine);
+    private final ImageRegistry imageRegistry;
+
+    private Map<String, List<TaskOutputManager>> outputManagers = new ConcurrentHashMap<>();
+    private Map<String, Path> taskDirectories = new ConcurrentHashMap<>();
+    private Map<String, WarmContainerPool> warmPools = new ConcurrentHashMap<>();
+    private Map<String, String> runningExecs = new ConcurrentHashMap<>();
+    // Containers a kill has to remove, as the launch of their task no longer does.
+    private Map<String, String> taskContainers = new ConcurrentHashMap<>();
+    private Set<String> unwarmableImages = ConcurrentHashMap.newKeySet();
+    private boolean warmPoolMaintenanceStarted;
+
+    public DockerBasedOrchestrationDriver() {
+        this(DockerClientProviderFactory.create());
+    }
+
+    public DockerBasedOrchestrationDriver(DockerClientProvider clientProvider) {
+        client = clientProvider.getClient();
+        containerEventMonitor = new ContainerEventMonitor(client, engine);
+        imageRegistry = new ImageRegistry(client, engine);
+    }
+
+    @Override
+    public CompletableFuture<String> retrieveContainerImage(String imageName) {
+        return imageRegistry.resolve(imageName);
     }
 
     @Override
@@ -68,37 +86,320 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
                                        StreameshContext context) {
         TaskDescriptor descriptor = TaskDescriptor.builder()
                 .id(intent.getTaskId())
+                .flowInstanceId(intent.getFlowInstanceId())
+                .status(TaskDescriptor.TaskStatus.LAUNCHING)
                 .build();
+        Consumer<TaskExecutionEvent<?>> updateHandler = event -> {
+            if (event.getType().equals(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)) {
+                event = TaskExecutionEvent.builder()
+                        .type(event.getType())
+                        .descriptor(handleUpdate((TaskDescriptor) event.getDescriptor()))
+                        .build();
+            }
+            onStatusUpdate.accept(event);
+        };
+
+        Optional<WarmContainerPool.WarmContainer> warmContainer = intent.getWarmPool() != null
+                && !unwarmableImages.contains(intent.getImage())
+                ? getWarmPool(intent, context.getServerInfo()).acquire()
+                : Optional.empty();
+        if (warmContainer.isPresent()) {
+            return scheduleOnWarmContainer(intent, descriptor, warmContainer.get(), updateHandler);
+        }
+
         String parentOutputDirectory = createOutputDirectory(descriptor.getId(),
                 System.getProperty(TMP_DIR_PROPERTY) + File.separator +STREAMESH_DIR);
 
         List<TaskOutputManager> managersList = new ArrayList<>();
 
         AtomicReference<CreateContainerCmd> create = new AtomicReference<>(client.createContainerCmd(intent.getImage()));
-        create.set(create.get().withCmd(buildCommand(intent.getTaskInput(), intent.getRuntimeInput())));
+        Map<?, ?> runtimeInput = mountLocalInputs(intent, create, context);
+        create.set(create.get().withCmd(buildCommand(intent.getTaskInput(), runtimeInput)));
         intent.getTaskOutputs().forEach(om -> {
             String outputDirectory = createOutputDirectory(om.getName(), parentOutputDirectory);
             create.set(setupOutputVolume(create.get(), outputDirectory, om.getOutputDir()));
-            TaskOutputManager manager = new TaskOutputManager(om.getName(), outputDirectory + File.separator + om.getFileNamePattern());
+            TaskOutputManager manager = new TaskOutputManager(om, outputDirectory, outputDirectoryWatcher);
             managersList.add(manager);
         });
         create.set(setupServerIpMapping(create.get(), context.getServerInfo()));
-
-        CreateContainerResponse createContainerResponse = create.get().exec();
-        descriptor = descriptor.withContainerId(createContainerResponse.getId());
+        create.set(setupResources(create.get(), intent.getResources()));
 
         outputManagers.put(descriptor.getId(), managersList);
 
-        TaskRunner runner = new TaskRunner(client, descriptor, event -> {
-            if (event.getType().equals(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)) {
-                event = TaskExecutionEvent.builder()
-                        .type(event.getType())
-                        .descriptor(handleUpdate((TaskDescriptor) event.getDescriptor()))
-                        .build();
+        // Published before the launch is queued, so that it reaches the handler ahead of any status set by the launch.
+        publish(descriptor, updateHandler);
+        watchOutputs(descriptor.getId(), updateHandler);
+
+        TaskDescriptor launching = descriptor;
+        launcher.submit(descriptor.getId(), cancelled -> launch(intent.getImage(), create.get(), launching, cancelled, updateHandler));
+        return descriptor;
+    }
+
+    private void launch(String image, CreateContainerCmd create, TaskDescriptor descriptor,
+                        ContainerLauncher.LaunchHandle cancelled, Consumer<TaskExecutionEvent<?>> onUpdate) {
+        Consumer<TaskExecutionEvent<?>> updateHandler = unlessCancelled(cancelled, onUpdate);
+        String containerId;
+        try {
+            containerId = create.exec().getId();
+        } catch (Exception e) {
+            if (e instanceof com.github.dockerjava.api.exception.NotFoundException) {
+                // The image has been removed from the daemon since it was resolved.
+                imageRegistry.invalidate(image);
+            }
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(e.getMessage()), updateHandler);
+            return;
+        }
+        // Recorded before the creation is reported, so that a kill which can no longer cancel the launch finds the container.
+        taskContainers.put(descriptor.getId(), containerId);
+        if (!cancelled.containerCreated()) {
+            taskContainers.remove(descriptor.getId());
+            removeContainer(containerId);
+            return;
+        }
+        new TaskRunner(client, containerEventMonitor, descriptor.withContainerId(containerId), updateHandler).start();
+    }
+
+    private TaskDescriptor scheduleOnWarmContainer(TaskExecutionIntent intent, TaskDescriptor descriptor,
+                                                   WarmContainerPool.WarmContainer container,
+                                                   Consumer<TaskExecutionEvent<?>> updateHandler) {
+        descriptor = descriptor.withContainerId(container.getContainerId());
+        taskContainers.put(descriptor.getId(), container.getContainerId());
+        taskDirectories.put(descriptor.getId(), Paths.get(container.getDirectory()));
+        outputManagers.put(descriptor.getId(), intent.getTaskOutputs().stream()
+                .map(om -> new TaskOutputManager(om, container.getOutputDirectories().get(om.getName()), outputDirectoryWatcher))
+                .collect(Collectors.toList()));
+        publish(descriptor, updateHandler);
+        watchOutputs(descriptor.getId(), updateHandler);
+
+        TaskDescriptor launching = descriptor;
+        // Exec does not go through the entrypoint of the image, unlike the command of a container.
+        List<String> cmd = new ArrayList<>(container.getEntrypoint());
+        cmd.addAll(buildCommand(intent.getTaskInput(), intent.getRuntimeInput()));
+        launcher.submit(descriptor.getId(), cancelled -> launchOnWarmContainer(cmd, launching, cancelled, updateHandler));
+        return descriptor;
+    }
+
+    private void launchOnWarmContainer(List<String> cmd, TaskDescriptor descriptor,
+                                       ContainerLauncher.LaunchHandle cancelled,
+                                       Consumer<TaskExecutionEvent<?>> onUpdate) {
+        Consumer<TaskExecutionEvent<?>> updateHandler = unlessCancelled(cancelled, onUpdate);
+        String containerId = descriptor.getContainerId();
+        String execId;
+        try {
+            client.unpauseContainerCmd(containerId).exec();
+            execId = client.execCreateCmd(containerId)
+                    .withCmd(cmd.toArray(new String[0]))
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec()
+                    .getId();
+        } catch (Exception e) {
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(e.getMessage()), updateHandler);
+            removeContainer(containerId);
+            return;
+        }
+        if (!cancelled.containerCreated()) {
+            removeContainer(containerId);
+            return;
+        }
+        TaskDescriptor running = descriptor.withStatus(TaskDescriptor.TaskStatus.RUNNING)
+                .withStarted(LocalDateTime.now());
+        runningExecs.put(descriptor.getId(), execId);
+        publish(running, updateHandler);
+        client.execStartCmd(execId).exec(new ExecStartResultCallback() {
+
+            @Override
+            public void onComplete() {
+                completeOnWarmContainer(running, execId, null, updateHandler);
+                super.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completeOnWarmContainer(running, execId, throwable, updateHandler);
+                super.onError(throwable);
+            }
+        });
+    }
+
+    private void completeOnWarmContainer(TaskDescriptor running, String execId, Throwable error,
+                                         Consumer<TaskExecutionEvent<?>> updateHandler) {
+        if (runningExecs.remove(running.getId()) == null) {
+            // The task has been killed.
+            return;
+        }
+        String errorMessage = error != null ? error.getMessage() : null;
+        if (error == null) {
+            try {
+                Integer exitCode = client.inspectExecCmd(execId).exec().getExitCode();
+                if (exitCode == null || exitCode != 0) {
+                    errorMessage = "The task exited with code " + exitCode;
+                }
+            } catch (RuntimeException e) {
+                errorMessage = "Could not read the exit code of the task: " + e.getMessage();
+            }
+        }
+        publish(errorMessage == null
+                ? running.withStatus(TaskDescriptor.TaskStatus.COMPLETE)
+                : running.withStatus(TaskDescriptor.TaskStatus.FAILED).withErrorMessage(errorMessage),
+                updateHandler);
+        // Warm containers serve a single task, as their output directories now belong to it.
+        engine.execute(() -> removeContainer(running.getContainerId()));
+    }
+
+    private WarmContainerPool getWarmPool(TaskExecutionIntent intent, StreameshServerInfo serverInfo) {
+        startWarmPoolMaintenance();
+        return warmPools.computeIfAbsent(intent.getDefinitionId(), id -> new WarmContainerPool(engine, intent.getWarmPool(),
+                () -> createWarmContainer(intent, serverInfo),
+                this::disposeWarmContainer));
+    }
+
+    private synchronized void startWarmPoolMaintenance() {
+        if (warmPoolMaintenanceStarted) {
+            return;
+        }
+        warmPoolMaintenanceStarted = true;
+        engine.scheduleAtFixedRate(() -> warmPools.values().forEach(WarmContainerPool::maintain),
+                WARM_POOL_MAINTENANCE_INTERVAL_MILLIS, WARM_POOL_MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private WarmContainerPool.WarmContainer createWarmContainer(TaskExecutionIntent intent, StreameshServerInfo serverInfo) {
+        String directory = createOutputDirectory(WARM_DIR_PREFIX + UUID.randomUUID().toString(),
+                System.getProperty(TMP_DIR_PROPERTY) + File.separator + STREAMESH_DIR);
+        String[] entrypoint = client.inspectImageCmd(intent.getImage()).exec().getConfig().getEntrypoint();
+        // The container idles until a task is run in it through exec.
+        CreateContainerCmd create = client.createContainerCmd(intent.getImage())
+                .withEntrypoint(System.getProperty(WARM_IDLE_CMD_PROPERTY, "tail -f /dev/null").split(" "));
+        Map<String, String> outputDirectories = new HashMap<>();
+        for (TaskOutput om : intent.getTaskOutputs()) {
+            String outputDirectory = createOutputDirectory(om.getName(), directory);
+            create = setupOutputVolume(create, outputDirectory, om.getOutputDir());
+            outputDirectories.put(om.getName(), outputDirectory);
+        }
+        create = setupServerIpMapping(create, serverInfo);
+        create = setupResources(create, intent.getResources());
+        String containerId = create.exec().getId();
+        WarmContainerPool.WarmContainer container = WarmContainerPool.WarmContainer.builder()
+                .containerId(containerId)
+                .directory(directory)
+                .outputDirectories(outputDirectories)
+                .entrypoint(entrypoint != null ? Arrays.asList(entrypoint) : Collections.emptyList())
+                .idleSince(System.currentTimeMillis())
+                .build();
+        try {
+            client.startContainerCmd(containerId).exec();
+        } catch (RuntimeException e) {
+            disposeWarmContainer(container);
+            // Most likely the image does not provide the idle command, so its tasks are only run in new containers.
+            if (unwarmableImages.add(intent.getImage())) {
+                logger.warning(String.format("Could not start a warm container of image %s, warm pools are disabled for it: %s",
+                        intent.getImage(), e.getMessage()));
+            }
+            throw e;
+        }
+        try {
+            client.pauseContainerCmd(containerId).exec();
+        } catch (RuntimeException e) {
+            disposeWarmContainer(container);
+            throw e;
+        }
+        return container;
+    }
+
+    private void disposeWarmContainer(WarmContainerPool.WarmContainer container) {
+        removeContainer(container.getContainerId());
+        try {
+            deleteDirectory(Paths.get(container.getDirectory()));
+        } catch (IOException e) {
+            logger.warning(String.format("Could not delete the directory of warm container %s: %s",
+                    container.getContainerId(), e.getMessage()));
+        }
+    }
+
+    // A killed task has its final status set by killTask, which must not be overridden by the launch.
+    private Consumer<TaskExecutionEvent<?>> unlessCancelled(ContainerLauncher.LaunchHandle cancelled,
+                                                            Consumer<TaskExecutionEvent<?>> onUpdate) {
+        return event -> {
+            if (!cancelled.isCancelled()) {
+                onUpdate.accept(event);
+            }
+        };
+    }
+
+    private void watchOutputs(String taskId, Consumer<TaskExecutionEvent<?>> updateHandler) {
+        outputManagers.getOrDefault(taskId, Collections.emptyList())
+                .forEach(manager -> manager.watchAvailability(partName -> updateHandler.accept(TaskExecutionEvent.builder()
+                        .type(TaskExecutionEvent.EventType.OUTPUT_AVAILABILITY)
+                        .descriptor(TaskOutputDescriptor.builder()
+                                .taskId(taskId)
+                                .outputName(manager.getOutputName())
+                                .partName(partName)
+                                .build())
+                        .build())));
+    }
+
+    private void publish(TaskDescriptor descriptor, Consumer<TaskExecutionEvent<?>> updateHandler) {
+        updateHandler.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(descriptor)
+                .build());
+    }
+
+    /**
+     * Replaces the urls of the inputs to be read from a volume with the path of a read-only mount of the output they
+     * point to, when that output is complete and held by this driver. Other inputs are left to be read over HTTP.
+     * Warm containers are created ahead of their task, so their inputs are always read over HTTP.
+     */
+    private Map<?, ?> mountLocalInputs(TaskExecutionIntent intent, AtomicReference<CreateContainerCmd> create,
+                                       StreameshContext context) {
+        if (intent.getInputTransports() == null || intent.getRuntimeInput() == null
+                || !intent.getInputTransports().containsValue(DataTransport.VOLUME)) {
+            return intent.getRuntimeInput();
+        }
+        Map<Object, Object> runtimeInput = new HashMap<>(intent.getRuntimeInput());
+        intent.getInputTransports().forEach((parameter, transport) -> {
+            Object value = runtimeInput.get(parameter);
+            if (transport != DataTransport.VOLUME || value == null) {
+                return;
+            }
+            if (value instanceof List) {
+                runtimeInput.put(parameter, ((List<?>) value).stream()
+                        .map(v -> mountLocalInput(v, create, context))
+                        .collect(Collectors.toList()));
+            } else {
+                runtimeInput.put(parameter, mountLocalInput(value, create, context));
             }
-            onStatusUpdate.accept(event);
         });
-        return runner.init();
+        return runtimeInput;
+    }
+
+    private Object mountLocalInput(Object value, AtomicReference<CreateContainerCmd> create, StreameshContext context) {
+        Matcher matcher = value instanceof String ? TASK_OUTPUT_URL.matcher((String) value) : null;
+        if (matcher == null || !matcher.find()) {
+            return value;
+        }
+        String taskId = matcher.group(1);
+        String outputName = matcher.group(2);
+        String partName = matcher.group(3);
+        // Resolved by the orchestrator, which knows the task holding the outputs of tasks served from the cache.
+        Optional<Path> output;
+        try {
+            output = partName != null
+                    ? context.getOrchestrator().getCompletedTaskOutputPart(taskId, outputName, partName)
+                    : context.getOrchestrator().getCompletedTaskOutput(taskId, outputName);
+        } catch (NotFoundException e) {
+            // Evicted upstream tasks are left to the HTTP URL, which reports them as missing.
+            return value;
+        }
+        return output
+                .map(path -> {
+                    String containerPath = INPUTS_DIR + "/" + taskId + "/" + outputName + "/" + path.getFileName();
+                    create.set(setupInputVolume(create.get(), path.toString(), containerPath));
+                    return (Object) containerPath;
+                })
+                .orElse(value);
     }
 
     private List<String> buildCommand(TaskInput taskInput, Map<?, ?> runtimeInput) {
@@ -124,15 +425,28 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
     @Override
     public void killTask(String taskId, StreameshContext context) {
         TaskDescriptor descriptor = context.getStore().getTaskById(taskId);
-        if (descriptor == null) {
-            throw new NotFoundException("Cannot find the task specified by id " + taskId);
+        runningExecs.remove(taskId);
+        outputManagers.getOrDefault(taskId, Collections.emptyList()).forEach(TaskOutputManager::stopWatchingAvailability);
+        // A cancelled launch removes the container it creates, the container of a task is otherwise removed here.
+        boolean cancelled = launcher.cancel(taskId);
+        String containerId = taskContainers.remove(taskId);
+        if (containerId == null && !cancelled) {
+            // Tasks launched before a restart of the server.
+            containerId = descriptor.getContainerId();
+        }
+        if (containerId != null) {
+            containerEventMonitor.untrack(containerId);
+            removeContainer(containerId);
         }
+        context.getStore().updateTask(descriptor.getServiceId(), descriptor.withStatus(TaskDescriptor.TaskStatus.KILLED));
+    }
+
+    private void removeContainer(String containerId) {
         try {
-            client.removeContainerCmd(descriptor.getContainerId()).withForce(true).exec();
+            client.removeContainerCmd(containerId).withForce(true).exec();
         } catch (com.github.dockerjava.api.exception.NotFoundException e) {
-            logger.info(String.format("Container %s has already been deleted.", descriptor.getContainerId()));
+            logger.info(String.format("Container %s has already been deleted.", containerId));
         }
-        context.getStore().updateTask(descriptor.getServiceId(), descriptor.withStatus(TaskDescriptor.TaskStatus.KILLED));
     }
 
     private CreateContainerCmd setupServerIpMapping(CreateContainerCmd cmd, StreameshServerInfo serverInfo) {
@@ -146,11 +460,40 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
 
     }
 
+    private CreateContainerCmd setupResources(CreateContainerCmd cmd, Resources resources) {
+        if (resources == null) {
+            return cmd;
+        }
+        HostConfig hc = cmd.getHostConfig();
+        ResourceQuantity requests = resources.getRequests();
+        ResourceQuantity limits = resources.getLimits();
+        if (requests != null && requests.getCpu() > 0) {
+            hc = hc.withCpuShares((int) Math.max(2, Math.round(requests.getCpu() * CPU_SHARES_PER_CORE)));
+        }
+        if (requests != null && requests.getMemoryBytes() > 0) {
+            hc = hc.withMemoryReservation(requests.getMemoryBytes());
+        }
+        if (limits != null && limits.getCpu() > 0) {
+            hc = hc.withCpuPeriod(CPU_PERIOD_MICROS)
+                    .withCpuQuota(Math.round(limits.getCpu() * CPU_PERIOD_MICROS));
+        }
+        if (limits != null && limits.getMemoryBytes() > 0) {
+            hc = hc.withMemory(limits.getMemoryBytes());
+        }
+        if (resources.getCpuset() != null) {
+            hc = hc.withCpusetCpus(resources.getCpuset());
+        }
+        return cmd.withHostConfig(hc);
+    }
+
     private TaskDescriptor handleUpdate(TaskDescriptor descriptor) {
         if (descriptor.getStatus().equals(TaskDescriptor.TaskStatus.COMPLETE)) {
             descriptor = descriptor.withExited(LocalDateTime.now());
             List<TaskOutputManager> managers = outputManagers.get(descriptor.getId());
             managers.forEach(m -> m.notifyTermination());
+        } else if (descriptor.getStatus().equals(TaskDescriptor.TaskStatus.FAILED)) {
+            outputManagers.getOrDefault(descriptor.getId(), Collections.emptyList())
+                    .forEach(TaskOutputManager::stopWatchingAvailability);
         }
         return descriptor;
     }
@@ -167,6 +510,17 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
         return cmd.withHostConfig(hc);
     }
 
+    private CreateContainerCmd setupInputVolume(CreateContainerCmd cmd, String hostInputPath, String containerInputPath) {
+        List<Bind> binds = Optional.ofNullable(cmd.getHostConfig().getBinds())
+                .map(Arrays::asList)
+                .map(ArrayList::new)
+                .orElse(new ArrayList<>());
+
+        binds.add(new Bind(hostInputPath, new Volume(containerInputPath), AccessMode.ro));
+        HostConfig hc = cmd.getHostConfig().withBinds(binds);
+        return cmd.withHostConfig(hc);
+    }
+
     private String createOutputDirectory(String name, String parentDir) {
         File dir = new File(parentDir
                 + File.separator
@@ -180,73 +534,83 @@ public class DockerBasedOrchestrationDriver implements OrchestrationDriver {
     }
 
     public InputStream getTaskOutput(String taskId, String outputName) {
-        return outputManagers.get(taskId).stream()
-                .filter(om -> om.getOutputName().equalsIgnoreCase(outputName))
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("No output named %s for taskId %s available.", outputName, taskId)))
-                .requestStream();
+        return getOutputManager(taskId, outputName).requestStream();
     }
 
-    private String computeImageName(String cmdImageName) {
-        return Arrays.asList(cmdImageName).stream()
-                .filter(s -> s.lastIndexOf("/") > s.lastIndexOf(":"))
+    @Override
+    public Optional<Path> getTaskOutputPath(String taskId, String outputName) {
+        return outputManagers.getOrDefault(taskId, Collections.emptyList()).stream()
+                .filter(om -> om.getOutputName().equalsIgnoreCase(outputName) && !om.isMultipart())
                 .findFirst()
-                .map(s -> s += ":latest")
-                .orElse(cmdImageName);
+                .map(om -> Paths.get(om.getOutputFilePath()))
+                .filter(Files::isRegularFile);
     }
 
-    private Optional<Image> findImage(String imageName, DockerClient client) {
-        ListImagesCmd imagesCmd = client.listImagesCmd().withImageNameFilter(imageName);
-        List<Image> imagesList = imagesCmd.exec();
-        if (imagesList == null || imagesList.isEmpty()) {
-            return Optional.empty();
-        }
-
-        return imagesList.stream()
-                .findFirst();
+    @Override
+    public InputStream getTaskOutputPart(String taskId, String outputName, String partName) {
+        return getOutputManager(taskId, outputName).requestPartStream(partName);
     }
 
-    private CompletableFuture<String> pullImage(String imageName, DockerClient client) {
-        PullImageCmd pullImageCmd = client.pullImageCmd(imageName);
-        CompletableFuture<String> pullFut = new CompletableFuture<>();
-        ResultCallback<PullResponseItem> resultCallback = new ResultCallback<PullResponseItem>() {
-
-            private Closeable closeable;
-            private DockerPullStatusManager manager = new DockerPullStatusManager(imageName);
-
-            @Override
-            public void close() throws IOException {
-                try {
-                    closeable.close();
-                } catch (IOException e) {
-                    throw new RuntimeException("Cannot close closeable " + closeable, e);
-                }
-            }
+    @Override
+    public Optional<Path> getTaskOutputPartPath(String taskId, String outputName, String partName) {
+        return outputManagers.getOrDefault(taskId, Collections.emptyList()).stream()
+                .filter(om -> om.getOutputName().equalsIgnoreCase(outputName) && om.isMultipart())
+                .findFirst()
+                .flatMap(om -> om.getPartPath(partName));
+    }
 
-            @Override
-            public void onStart(Closeable closeable) {
-                this.closeable = closeable;
-            }
+    private TaskOutputManager getOutputManager(String taskId, String outputName) {
+        return outputManagers.getOrDefault(taskId, Collections.emptyList()).stream()
+                .filter(om -> om.getOutputName().equalsIgnoreCase(outputName))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException(
+                        String.format("No output named %s for taskId %s available.", outputName, taskId)));
+    }
 
-            @Override
-            public void onNext(PullResponseItem object) {
-                System.out.print(manager.update(object));
-            }
+    @Override
+    public void releaseTask(String taskId) {
+        taskContainers.remove(taskId);
+        List<TaskOutputManager> managers = outputManagers.remove(taskId);
+        if (managers != null) {
+            managers.forEach(TaskOutputManager::release);
+        }
+        Path outputDirectory = getTaskOutputDirectory(taskId);
+        taskDirectories.remove(taskId);
+        try {
+            deleteDirectory(outputDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not delete the output directory of task " + taskId, e);
+        }
+    }
 
-            @Override
-            public void onError(Throwable throwable) {
-                pullFut.completeExceptionally(throwable);
-            }
+    private void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
 
-            @Override
-            public void onComplete() {
-                Optional<Image> image = findImage(imageName, client);
-                pullFut.complete(image.get().getId());
-            }
+    @Override
+    public long getTaskOutputSize(String taskId) {
+        Path outputDirectory = getTaskOutputDirectory(taskId);
+        if (!Files.exists(outputDirectory)) {
+            return 0;
+        }
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            return paths.filter(Files::isRegularFile)
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            logger.warning(String.format("Could not compute the output size of task %s: %s", taskId, e.getMessage()));
+            return 0;
+        }
+    }
 
-        };
-        pullImageCmd.exec(resultCallback);
-        return pullFut;
+    private Path getTaskOutputDirectory(String taskId) {
+        return taskDirectories.getOrDefault(taskId, Paths.get(System.getProperty(TMP_DIR_PROPERTY), STREAMESH_DIR, taskId));
     }
 }
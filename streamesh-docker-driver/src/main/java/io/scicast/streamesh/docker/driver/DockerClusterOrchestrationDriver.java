@@ -0,0 +1,49 @@
+package io.scicast.streamesh.docker.driver;
+
+import io.scicast.streamesh.core.cluster.CompositeOrchestrationDriver;
+import io.scicast.streamesh.core.cluster.WorkerNode;
+import io.scicast.streamesh.docker.driver.internal.DefaultDockerClientProvider;
+import io.scicast.streamesh.docker.driver.internal.DockerClientProviderFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads tasks over the Docker daemons listed in the streamesh.docker.cluster.urls property, a comma separated list
+ * of daemon urls, each optionally followed by its weight, as in tcp://node-1:2375=2. Task outputs are written to
+ * directories bound into the containers, so the daemons must share the file system of the server, as is the case for
+ * several daemons on the same machine. Without urls, the daemon of the single node driver is used.
+ */
+public class DockerClusterOrchestrationDriver extends CompositeOrchestrationDriver {
+
+    public static final String CLUSTER_URLS_PROPERTY = "streamesh.docker.cluster.urls";
+
+    public DockerClusterOrchestrationDriver() {
+        super(createNodes(System.getProperty(CLUSTER_URLS_PROPERTY)));
+    }
+
+    private static List<WorkerNode> createNodes(String urls) {
+        if (urls == null || urls.isBlank()) {
+            return Collections.singletonList(WorkerNode.builder()
+                    .id("local")
+                    .driver(new DockerBasedOrchestrationDriver(DockerClientProviderFactory.create()))
+                    .build());
+        }
+        return Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(DockerClusterOrchestrationDriver::createNode)
+                .collect(Collectors.toList());
+    }
+
+    private static WorkerNode createNode(String node) {
+        String[] parts = node.split("=");
+        return WorkerNode.builder()
+                .id(parts[0])
+                .driver(new DockerBasedOrchestrationDriver(new DefaultDockerClientProvider(parts[0])))
+                .weight(parts.length > 1 ? Double.parseDouble(parts[1]) : 1)
+                .build();
+    }
+}
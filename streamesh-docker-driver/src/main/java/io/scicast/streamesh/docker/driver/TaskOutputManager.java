@@ -1,36 +1,173 @@
 package io.scicast.streamesh.docker.driver;
 
+import io.scicast.streamesh.core.TaskOutput;
+import io.scicast.streamesh.core.exception.NotFoundException;
+import io.scicast.streamesh.docker.driver.internal.OutputDirectoryWatcher;
+import io.scicast.streamesh.docker.driver.internal.SharedOutputBuffer;
 import io.scicast.streamesh.docker.driver.internal.TailingInputStream;
 import lombok.Getter;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Serves the output of a task. A single file output is the file named by the file name pattern of the output, while
+ * a multipart output is made of every file of the output directory matching that pattern, each of which is served as
+ * a part of its own.
+ */
 public class TaskOutputManager {
 
+    private Logger logger = Logger.getLogger(getClass().getName());
+
     @Getter
     private final String outputFilePath;
-    private final List<TailingInputStream> registeredTailers = new ArrayList<>();
+    private final SharedOutputBuffer buffer;
+    private final OutputDirectoryWatcher watcher;
 
     @Getter
     private final String outputName;
-    private boolean jobTerminated = false;
+    @Getter
+    private final boolean multipart;
+    private final Path directory;
+    private final PathMatcher partMatcher;
+    private final Map<String, SharedOutputBuffer> partBuffers = new ConcurrentHashMap<>();
+    private volatile boolean terminated;
+
+    private Closeable availabilityRegistration;
+    private Consumer<String> onAvailable;
+    private boolean available;
+    private final Set<String> availableParts = new LinkedHashSet<>();
 
-    public TaskOutputManager(String outputName, String outputFilePath) {
-        this.outputName = outputName;
-        this.outputFilePath = outputFilePath;
+    public TaskOutputManager(TaskOutput output, String outputDirectory, OutputDirectoryWatcher watcher) {
+        this.outputName = output.getName();
+        this.multipart = output.isMultipart();
+        this.directory = Paths.get(outputDirectory);
+        this.outputFilePath = outputDirectory + File.separator + output.getFileNamePattern();
+        this.watcher = watcher;
+        this.buffer = multipart ? null : new SharedOutputBuffer(outputFilePath, watcher);
+        this.partMatcher = multipart ? FileSystems.getDefault().getPathMatcher("glob:" + output.getFileNamePattern()) : null;
     }
 
     public InputStream requestStream() {
-        TailingInputStream stream = new TailingInputStream(outputFilePath, jobTerminated);
-        registeredTailers.add(stream);
-        return stream;
+        if (multipart) {
+            throw new NotFoundException(String.format("Output %s is made of parts, which have to be requested one by one.", outputName));
+        }
+        return new TailingInputStream(buffer);
+    }
+
+    public InputStream requestPartStream(String partName) {
+        SharedOutputBuffer partBuffer = partBuffers.computeIfAbsent(checkPart(partName),
+                name -> new SharedOutputBuffer(directory.resolve(name).toString(), watcher));
+        if (terminated) {
+            // Parts first requested once the task has terminated are complete already. Checked after the buffer is
+            // added, so that a termination missing the new buffer is seen here.
+            partBuffer.notifyWriteCompletion();
+        }
+        return new TailingInputStream(partBuffer);
     }
 
+    public Optional<Path> getPartPath(String partName) {
+        return Optional.of(directory.resolve(checkPart(partName)))
+                .filter(Files::isRegularFile);
+    }
+
+    /**
+     * Runs the given callback as soon as the output file is no longer empty, or, for a multipart output, for every
+     * part as soon as it is no longer empty. The callback is given the name of the part, or null for single files.
+     */
+    public synchronized void watchAvailability(Consumer<String> onAvailable) {
+        this.onAvailable = onAvailable;
+        availabilityRegistration = watcher.register(directory, this::checkAvailability);
+        // Anything written before the registration took effect would otherwise go unnoticed.
+        checkAvailability();
+    }
+
+    /**
+     * Reports the parts not seen yet before completing the output, so that they are all known by the time the task
+     * is reported as complete.
+     */
     public void notifyTermination() {
-        this.jobTerminated = true;
-        registeredTailers.forEach(tailer -> tailer.notifyWriteCompletion());
+        if (multipart) {
+            checkAvailability();
+        }
+        stopWatchingAvailability();
+        terminated = true;
+        if (multipart) {
+            partBuffers.values().forEach(SharedOutputBuffer::notifyWriteCompletion);
+        } else {
+            buffer.notifyWriteCompletion();
+        }
+    }
+
+    public void release() {
+        stopWatchingAvailability();
+        if (multipart) {
+            partBuffers.values().forEach(SharedOutputBuffer::release);
+            partBuffers.clear();
+        } else {
+            buffer.release();
+        }
+    }
+
+    public synchronized void stopWatchingAvailability() {
+        if (availabilityRegistration == null) {
+            return;
+        }
+        try {
+            availabilityRegistration.close();
+        } catch (IOException e) {
+            logger.fine(String.format("Could not stop watching output %s", outputFilePath));
+        }
+        availabilityRegistration = null;
+    }
+
+    private void checkAvailability() {
+        if (multipart) {
+            newParts().forEach(onAvailable);
+            return;
+        }
+        synchronized (this) {
+            if (available || availabilityRegistration == null || new File(outputFilePath).length() == 0) {
+                return;
+            }
+            available = true;
+            stopWatchingAvailability();
+        }
+        onAvailable.accept(null);
+    }
+
+    private synchronized List<String> newParts() {
+        if (availabilityRegistration == null) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> partMatcher.matches(file.getFileName()))
+                    .filter(file -> file.toFile().length() > 0)
+                    .map(file -> file.getFileName().toString())
+                    .sorted()
+                    .filter(availableParts::add)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.warning(String.format("Could not list the parts of output %s: %s", outputName, e.getMessage()));
+            return Collections.emptyList();
+        }
+    }
+
+    private String checkPart(String partName) {
+        Path part = Paths.get(partName);
+        if (!multipart || part.getNameCount() != 1 || partName.equals("..") || !partMatcher.matches(part)) {
+            throw new NotFoundException(String.format("No part named %s for output %s.", partName, outputName));
+        }
+        return partName;
     }
 
 }
@@ -0,0 +1,17 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class ContainerEvent {
+
+    private String containerId;
+    private Type type;
+    private Integer exitCode;
+
+    public enum Type {
+        STARTED, EXITED, OUT_OF_MEMORY, REMOVED
+    }
+}
@@ -0,0 +1,213 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a single Docker event subscription for all the containers started by the driver and
+ * dispatches start, die and oom events to the listener registered for each container.
+ * A periodic reconciliation sweep lists all tracked containers in one call to recover from missed events.
+ */
+public class ContainerEventMonitor {
+
+    public static final String RECONCILIATION_INTERVAL_PROPERTY = "streamesh.docker.reconciliation.interval.millis";
+    private static final long DEFAULT_RECONCILIATION_INTERVAL_MILLIS = 30_000;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final DockerClient client;
+    private final ExecutionEngine engine;
+    private final long reconciliationInterval;
+    private final Map<String, Consumer<ContainerEvent>> listeners = new ConcurrentHashMap<>();
+
+    private final AtomicReference<EventStream> stream = new AtomicReference<>();
+    private boolean started;
+
+    public ContainerEventMonitor(DockerClient client, ExecutionEngine engine) {
+        this.client = client;
+        this.engine = engine;
+        this.reconciliationInterval = Long.getLong(RECONCILIATION_INTERVAL_PROPERTY, DEFAULT_RECONCILIATION_INTERVAL_MILLIS);
+    }
+
+    public void track(String containerId, Consumer<ContainerEvent> listener) {
+        ensureStarted();
+        listeners.put(containerId, listener);
+    }
+
+    public void untrack(String containerId) {
+        listeners.remove(containerId);
+    }
+
+    private synchronized void ensureStarted() {
+        if (started) {
+            return;
+        }
+        started = true;
+        subscribe();
+        engine.scheduleAtFixedRate(this::reconcile, reconciliationInterval, reconciliationInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void subscribe() {
+        EventStream next = new EventStream();
+        stream.set(next);
+        try {
+            client.eventsCmd()
+                    .withEventFilter("start", "die", "oom")
+                    .exec(next);
+        } catch (Exception e) {
+            logger.warning("Could not subscribe to the Docker event stream: " + e.getMessage());
+            next.replace();
+        }
+    }
+
+    private void handle(Event event) {
+        if (event.getType() != null && !EventType.CONTAINER.equals(event.getType())) {
+            return;
+        }
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        if (action == null) {
+            return;
+        }
+        switch (action) {
+            case "start":
+                dispatch(event.getId(), ContainerEvent.Type.STARTED);
+                break;
+            case "die":
+                dispatch(event.getId(), ContainerEvent.Type.EXITED, exitCode(event));
+                break;
+            case "oom":
+                dispatch(event.getId(), ContainerEvent.Type.OUT_OF_MEMORY);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Integer exitCode(Event event) {
+        String exitCode = event.getActor() != null && event.getActor().getAttributes() != null
+                ? event.getActor().getAttributes().get("exitCode")
+                : null;
+        try {
+            return exitCode != null ? Integer.valueOf(exitCode) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void reconcile() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<String> trackedIds = new ArrayList<>(listeners.keySet());
+        List<Container> containers;
+        try {
+            containers = client.listContainersCmd()
+                    .withShowAll(true)
+                    .withIdFilter(trackedIds)
+                    .exec();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not reconcile container states: " + e.getMessage(), e);
+            return;
+        }
+        containers.forEach(c -> {
+            trackedIds.remove(c.getId());
+            String state = c.getState();
+            if ("running".equalsIgnoreCase(state)) {
+                dispatch(c.getId(), ContainerEvent.Type.STARTED);
+            } else if ("exited".equalsIgnoreCase(state) || "dead".equalsIgnoreCase(state)) {
+                dispatch(c.getId(), ContainerEvent.Type.EXITED);
+            }
+        });
+        trackedIds.forEach(id -> dispatch(id, ContainerEvent.Type.REMOVED));
+    }
+
+    private void dispatch(String containerId, ContainerEvent.Type type) {
+        dispatch(containerId, type, null);
+    }
+
+    private void dispatch(String containerId, ContainerEvent.Type type, Integer exitCode) {
+        Consumer<ContainerEvent> listener = containerId != null ? listeners.get(containerId) : null;
+        if (listener == null) {
+            return;
+        }
+        logger.finest("Container " + containerId + " reported event " + type);
+        listener.accept(ContainerEvent.builder()
+                .containerId(containerId)
+                .type(type)
+                .exitCode(exitCode)
+                .build());
+    }
+
+    /**
+     * One subscription to the Docker event stream. A stream may both fail and complete, so only the first of those
+     * replaces it, and events are only dispatched from the current stream.
+     */
+    private class EventStream implements ResultCallback<Event> {
+
+        private volatile Closeable closeable;
+
+        @Override
+        public void onStart(Closeable closeable) {
+            this.closeable = closeable;
+        }
+
+        @Override
+        public void onNext(Event event) {
+            if (stream.get() == this) {
+                handle(event);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warning("Docker event stream failed: " + throwable.getMessage());
+            replace();
+        }
+
+        @Override
+        public void onComplete() {
+            logger.fine("Docker event stream closed by the daemon.");
+            replace();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closeable != null) {
+                closeable.close();
+            }
+        }
+
+        private void replace() {
+            if (!stream.compareAndSet(this, null)) {
+                return;
+            }
+            try {
+                close();
+            } catch (IOException e) {
+                logger.fine("Could not close the Docker event stream: " + e.getMessage());
+            }
+            engine.schedule(() -> {
+                subscribe();
+                // Events emitted while the stream was down are lost, so catch up straight away.
+                reconcile();
+            }, RECONNECT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
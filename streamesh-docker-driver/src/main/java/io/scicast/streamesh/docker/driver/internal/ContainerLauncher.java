@@ -0,0 +1,150 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs container launches on the engine threads, keeping at most a configured number of them talking to the
+ * Docker daemon at any time. Launches beyond that limit wait in a queue instead of holding on to a thread, so that a
+ * flow stage scheduling many pipes at once gets its containers created and started in parallel without flooding
+ * the daemon. A launch can be cancelled until it reports the creation of its container: from then on the container
+ * belongs to the task, and killing the task is up to whoever removes its containers.
+ */
+public class ContainerLauncher {
+
+    public static final String LAUNCH_CONCURRENCY_PROPERTY = "streamesh.docker.launch.concurrency";
+    private static final int DEFAULT_LAUNCH_CONCURRENCY = 16;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ExecutionEngine engine;
+    private final int concurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Launch> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, Launch> launches = new ConcurrentHashMap<>();
+
+    public ContainerLauncher(ExecutionEngine engine) {
+        this(engine, Integer.getInteger(LAUNCH_CONCURRENCY_PROPERTY, DEFAULT_LAUNCH_CONCURRENCY));
+    }
+
+    public ContainerLauncher(ExecutionEngine engine, int concurrency) {
+        this.engine = engine;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Queues the launch of a task. The launch receives a handle telling whether the task has been cancelled in the
+     * meantime, which it should check between the calls it makes to the daemon.
+     */
+    public CompletableFuture<Void> submit(String taskId, Consumer<LaunchHandle> launch) {
+        Launch l = new Launch(taskId, launch);
+        launches.put(taskId, l);
+        pending.add(l);
+        dispatch();
+        return l.future;
+    }
+
+    /**
+     * Cancels the launch of a task. Returns false when the launch can no longer be cancelled, that is when the
+     * container of the task has been created already or never been requested. The launch of a killed task still
+     * sees itself as cancelled, so that it stops reporting the status of the task.
+     */
+    public boolean cancel(String taskId) {
+        Launch l = launches.get(taskId);
+        if (l == null) {
+            return false;
+        }
+        if (l.state.compareAndSet(State.PENDING, State.CANCELLED) || l.state.compareAndSet(State.STARTING, State.CANCELLED)) {
+            return true;
+        }
+        l.state.compareAndSet(State.CREATED, State.KILLED);
+        return false;
+    }
+
+    public int getPendingLaunches() {
+        return pending.size();
+    }
+
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= concurrency) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Launch l = pending.poll();
+            if (l == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            engine.execute(() -> run(l));
+        }
+    }
+
+    private void run(Launch l) {
+        try {
+            if (l.state.compareAndSet(State.PENDING, State.STARTING)) {
+                l.launch.accept(l);
+            }
+            l.future.complete(null);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, String.format("Could not launch the container of task %s: %s", l.taskId, t.getMessage()), t);
+            l.future.completeExceptionally(t);
+        } finally {
+            launches.remove(l.taskId);
+            inFlight.decrementAndGet();
+            dispatch();
+        }
+    }
+
+    public interface LaunchHandle {
+
+        boolean isCancelled();
+
+        /**
+         * Reports that the container of the task has been created. Returns false when the launch has been cancelled
+         * in the meantime, in which case the launch removes the container itself.
+         */
+        boolean containerCreated();
+    }
+
+    private enum State {
+        PENDING, STARTING, CREATED, CANCELLED, KILLED
+    }
+
+    private static class Launch implements LaunchHandle {
+
+        private final String taskId;
+        private final Consumer<LaunchHandle> launch;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+
+        Launch(String taskId, Consumer<LaunchHandle> launch) {
+            this.taskId = taskId;
+            this.launch = launch;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            State current = state.get();
+            return current == State.CANCELLED || current == State.KILLED;
+        }
+
+        @Override
+        public boolean containerCreated() {
+            return state.compareAndSet(State.STARTING, State.CREATED);
+        }
+    }
+}
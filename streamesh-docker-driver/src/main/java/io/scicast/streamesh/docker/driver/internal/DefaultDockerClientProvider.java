@@ -10,7 +10,10 @@ public class DefaultDockerClientProvider implements DockerClientProvider {
     private final DockerClient client;
 
     public DefaultDockerClientProvider() {
-        String dockerServerUrl = System.getProperty(DOCKER_SERVER_URL, DOCKER_SOCKET);
+        this(System.getProperty(DOCKER_SERVER_URL, DOCKER_SOCKET));
+    }
+
+    public DefaultDockerClientProvider(String dockerServerUrl) {
         client = DockerClientBuilder.getInstance(dockerServerUrl).build();
     }
 
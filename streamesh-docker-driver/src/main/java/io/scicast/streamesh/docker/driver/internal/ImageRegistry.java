@@ -0,0 +1,155 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ListImagesCmd;
+import com.github.dockerjava.api.command.PullImageCmd;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.PullResponseItem;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Resolves image names to image ids off the calling thread. Resolved ids are cached for a configurable time, and
+ * concurrent requests for an image that is being looked up or pulled share the same lookup, so that deploying many
+ * definitions based on the same image results in a single pull.
+ */
+public class ImageRegistry {
+
+    public static final String CACHE_TTL_PROPERTY = "streamesh.docker.image.cache.ttl.millis";
+    private static final long DEFAULT_CACHE_TTL_MILLIS = 600_000;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final DockerClient client;
+    private final ExecutionEngine engine;
+    private final long ttl;
+    private final Map<String, CachedImage> images = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> resolutions = new ConcurrentHashMap<>();
+
+    public ImageRegistry(DockerClient client, ExecutionEngine engine) {
+        this.client = client;
+        this.engine = engine;
+        this.ttl = Long.getLong(CACHE_TTL_PROPERTY, DEFAULT_CACHE_TTL_MILLIS);
+    }
+
+    public CompletableFuture<String> resolve(String imageName) {
+        CachedImage cached = images.get(imageName);
+        if (cached != null && System.currentTimeMillis() - cached.resolvedAt <= ttl) {
+            return CompletableFuture.completedFuture(cached.imageId);
+        }
+        CompletableFuture<String> resolution = new CompletableFuture<>();
+        CompletableFuture<String> existing = resolutions.putIfAbsent(imageName, resolution);
+        if (existing != null) {
+            return existing;
+        }
+        resolution.whenComplete((imageId, ex) -> {
+            if (ex == null) {
+                images.put(imageName, new CachedImage(imageId, System.currentTimeMillis()));
+            } else {
+                logger.warning(String.format("An error occurred while pulling image %s - %s", imageName, ex.getMessage()));
+            }
+            resolutions.remove(imageName, resolution);
+        });
+        engine.execute(() -> lookup(imageName, resolution));
+        return resolution;
+    }
+
+    public void invalidate(String imageName) {
+        images.remove(imageName);
+    }
+
+    private void lookup(String imageName, CompletableFuture<String> resolution) {
+        try {
+            Optional<Image> image = findImage(computeImageName(imageName));
+            if (image.isPresent()) {
+                resolution.complete(image.get().getId());
+            } else {
+                pullImage(imageName, resolution);
+            }
+        } catch (RuntimeException e) {
+            resolution.completeExceptionally(e);
+        }
+    }
+
+    private String computeImageName(String cmdImageName) {
+        return cmdImageName.lastIndexOf("/") > cmdImageName.lastIndexOf(":")
+                ? cmdImageName + ":latest"
+                : cmdImageName;
+    }
+
+    private Optional<Image> findImage(String imageName) {
+        ListImagesCmd imagesCmd = client.listImagesCmd().withImageNameFilter(imageName);
+        List<Image> imagesList = imagesCmd.exec();
+        if (imagesList == null || imagesList.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return imagesList.stream()
+                .findFirst();
+    }
+
+    private void pullImage(String imageName, CompletableFuture<String> pullFut) {
+        PullImageCmd pullImageCmd = client.pullImageCmd(imageName);
+        ResultCallback<PullResponseItem> resultCallback = new ResultCallback<PullResponseItem>() {
+
+            private Closeable closeable;
+            private DockerPullStatusManager manager = new DockerPullStatusManager(imageName);
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot close closeable " + closeable, e);
+                }
+            }
+
+            @Override
+            public void onStart(Closeable closeable) {
+                this.closeable = closeable;
+            }
+
+            @Override
+            public void onNext(PullResponseItem object) {
+                System.out.print(manager.update(object));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                pullFut.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                Optional<Image> image = findImage(imageName);
+                if (image.isPresent()) {
+                    pullFut.complete(image.get().getId());
+                } else {
+                    pullFut.completeExceptionally(new RuntimeException("Image " + imageName + " not found after pulling it"));
+                }
+            }
+
+        };
+        pullImageCmd.exec(resultCallback);
+    }
+
+    private static class CachedImage {
+
+        private final String imageId;
+        private final long resolvedAt;
+
+        CachedImage(String imageId, long resolvedAt) {
+            this.imageId = imageId;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Watches task output directories with a single {@link WatchService} and a single thread.
+ * Every directory is registered once, no matter how many tailers follow the files it contains,
+ * and is unregistered as soon as its last listener goes away.
+ */
+public class OutputDirectoryWatcher {
+
+    private static final Closeable NO_REGISTRATION = () -> { };
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final Map<Path, WatchedDirectory> directories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    public synchronized Closeable register(Path directory, Runnable listener) {
+        WatchedDirectory watched = directories.get(directory);
+        if (watched == null) {
+            try {
+                ensureStarted();
+                WatchKey key = directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watched = new WatchedDirectory(key);
+                directories.put(directory, watched);
+            } catch (IOException e) {
+                logger.fine(String.format("Could not watch directory %s: %s", directory, e.getMessage()));
+                return NO_REGISTRATION;
+            }
+        }
+        watched.listeners.add(listener);
+        return () -> unregister(directory, listener);
+    }
+
+    private synchronized void unregister(Path directory, Runnable listener) {
+        WatchedDirectory watched = directories.get(directory);
+        if (watched == null) {
+            return;
+        }
+        watched.listeners.remove(listener);
+        if (watched.listeners.isEmpty()) {
+            watched.key.cancel();
+            directories.remove(directory);
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::dispatch, "streamesh-output-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void dispatch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            // Listeners re-read their file anyway, so the events themselves only matter as a wake-up call.
+            key.pollEvents();
+            WatchedDirectory watched = directories.get((Path) key.watchable());
+            if (watched != null) {
+                watched.listeners.forEach(listener -> {
+                    try {
+                        listener.run();
+                    } catch (RuntimeException e) {
+                        logger.warning(String.format("Output listener failed: %s", e.getMessage()));
+                    }
+                });
+            }
+            key.reset();
+        }
+    }
+
+    private static class WatchedDirectory {
+        private final WatchKey key;
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+        private WatchedDirectory(WatchKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Single producer, multiple consumer ring buffer over a task output file. The most recent bytes of the file are
+ * read from disk once into the ring and copied from there to every reader, each of which only keeps its own cursor.
+ * Readers that fall behind the ring are served from the file itself, so memory stays bounded per output
+ * no matter how many readers there are, and the ring is dropped altogether when nobody is reading.
+ */
+public class SharedOutputBuffer {
+
+    public static final String BUFFER_SIZE_PROPERTY = "streamesh.docker.output.buffer.size";
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    private static final long FALLBACK_POLLING_INTERVAL_MILLIS = 1000;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final Path filePath;
+    private final OutputDirectoryWatcher watcher;
+    private final int capacity;
+    private final Object changeMonitor = new Object();
+    private volatile boolean writeComplete;
+    private volatile boolean released;
+    private long changes = 0;
+
+    private byte[] ring;
+    private long head = 0;
+    private int readers = 0;
+    private FileChannel channel;
+    private Closeable registration;
+
+    public SharedOutputBuffer(String filePath, OutputDirectoryWatcher watcher) {
+        this(filePath, watcher, Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE));
+    }
+
+    public SharedOutputBuffer(String filePath, OutputDirectoryWatcher watcher, int capacity) {
+        this.filePath = Paths.get(filePath);
+        this.watcher = watcher;
+        this.capacity = capacity;
+    }
+
+    public synchronized void attach() {
+        readers++;
+    }
+
+    public synchronized void detach() {
+        readers--;
+        if (readers <= 0) {
+            readers = 0;
+            closeResources();
+        }
+    }
+
+    public void notifyWriteCompletion() {
+        this.writeComplete = true;
+        signalChange();
+    }
+
+    public void release() {
+        released = true;
+        signalChange();
+        synchronized (this) {
+            closeResources();
+        }
+    }
+
+    public synchronized long available(long position) {
+        return Math.max(0, head - position);
+    }
+
+    /**
+     * Reads the bytes found at the given position, waiting for the producer if there are none yet.
+     * Returns -1 once the output is complete and fully read, or as soon as the reader is cancelled.
+     */
+    public int read(long position, byte[] buf, int off, int len, BooleanSupplier cancelled) throws IOException {
+        while (true) {
+            long observedChanges;
+            synchronized (changeMonitor) {
+                observedChanges = changes;
+            }
+            // The completion flag is read before the file so that data written right before completion is not lost.
+            boolean complete = writeComplete;
+            if (released || cancelled.getAsBoolean()) {
+                return -1;
+            }
+            int read;
+            try {
+                read = readAt(position, buf, off, len);
+            } catch (ClosedChannelException e) {
+                if (released || cancelled.getAsBoolean()) {
+                    return -1;
+                }
+                continue;
+            }
+            if (read > 0) {
+                return read;
+            }
+            if (complete) {
+                return -1;
+            }
+            if (startWatching()) {
+                // Anything written before the registration took effect would otherwise only be seen on the next poll.
+                continue;
+            }
+            awaitChange(observedChanges);
+        }
+    }
+
+    public void signalChange() {
+        synchronized (changeMonitor) {
+            changes++;
+            changeMonitor.notifyAll();
+        }
+    }
+
+    private int readAt(long position, byte[] buf, int off, int len) throws IOException {
+        FileChannel spill;
+        long spillLimit;
+        synchronized (this) {
+            if (!openChannel()) {
+                return 0;
+            }
+            if (position >= head) {
+                fill();
+            }
+            if (position >= head - capacity && position < head) {
+                int count = (int) Math.min(len, head - position);
+                int index = (int) (position % capacity);
+                int firstPart = Math.min(count, capacity - index);
+                System.arraycopy(ring, index, buf, off, firstPart);
+                System.arraycopy(ring, 0, buf, off + firstPart, count - firstPart);
+                return count;
+            }
+            if (position >= head) {
+                return 0;
+            }
+            spill = channel;
+            spillLimit = head;
+        }
+        // The reader lags behind the ring: serve it from the file without holding up the others.
+        int read = spill.read(ByteBuffer.wrap(buf, off, (int) Math.min(len, spillLimit - position)), position);
+        return Math.max(read, 0);
+    }
+
+    private void fill() throws IOException {
+        if (ring == null) {
+            ring = new byte[capacity];
+        }
+        int index = (int) (head % capacity);
+        int read = channel.read(ByteBuffer.wrap(ring, index, capacity - index), head);
+        if (read > 0) {
+            head += read;
+        }
+    }
+
+    private boolean openChannel() throws IOException {
+        if (released) {
+            throw new ClosedChannelException();
+        }
+        if (channel != null) {
+            return true;
+        }
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+            return true;
+        } catch (NoSuchFileException e) {
+            logger.finest(String.format("File %s is not yet available", filePath));
+            return false;
+        }
+    }
+
+    private synchronized boolean startWatching() {
+        if (registration != null || readers == 0) {
+            return false;
+        }
+        registration = watcher.register(filePath.getParent(), this::signalChange);
+        return true;
+    }
+
+    private void awaitChange(long observedChanges) throws IOException {
+        synchronized (changeMonitor) {
+            if (changes != observedChanges) {
+                return;
+            }
+            try {
+                changeMonitor.wait(FALLBACK_POLLING_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for data from " + filePath, e);
+            }
+        }
+    }
+
+    private void closeResources() {
+        if (registration != null) {
+            try {
+                registration.close();
+            } catch (IOException e) {
+                logger.fine(String.format("Could not stop watching file %s", filePath));
+            }
+            registration = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.fine(String.format("Could not close file %s", filePath));
+            }
+            channel = null;
+        }
+        ring = null;
+        head = 0;
+    }
+}
@@ -1,171 +1,67 @@
 package io.scicast.streamesh.docker.driver.internal;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.logging.Logger;
 
+/**
+ * Follows a task output while it is being written. The bytes come from the {@link SharedOutputBuffer} of the output,
+ * which is shared with every other reader: the stream itself only keeps track of how far it has read.
+ */
 public class TailingInputStream extends InputStream {
 
-    private Logger logger = Logger.getLogger(getClass().getName());
+    private final SharedOutputBuffer buffer;
+    private volatile boolean closed;
+    private boolean detached;
+    private long position = 0;
 
-    private String filePath;
-    private boolean writeComplete;
-    private long fileLength;
-    private long lastKnownPosition = 0;
-    private final int BLOCK_SIZE = 100 * 1024;
-    private final int NUMBER_OF_BLOCKS = 20;
-
-    private Runnable producerTask;
-
-    private BlockingQueue<ReadResult> blocks = new LinkedBlockingQueue<>(NUMBER_OF_BLOCKS);
-    private int readBytes = 0;
-    private byte[] leftOver;
-
-    public TailingInputStream(String filePath) {
-        this(filePath, false);
-    }
-
-    public TailingInputStream(String filePath, boolean writeComplete) {
-        this.filePath = filePath;
-        this.writeComplete = writeComplete;
-        init();
+    public TailingInputStream(SharedOutputBuffer buffer) {
+        this.buffer = buffer;
+        buffer.attach();
     }
 
-    private void init() {
-        producerTask = () -> {
-            int blockNumber = 1;
-            RandomAccessFile raf = null;
-            int read = 0;
-            while (fileLength == 0) {
-                try {
-                    raf = new RandomAccessFile(filePath, "r");
-                    fileLength = raf.length();
-                } catch (Exception e) {
-                    logger.fine(String.format("File %s is not yet available", filePath));
-                }
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-            while (fileLength > lastKnownPosition || !writeComplete) {
-                byte[] buf = new byte[BLOCK_SIZE];
-                try {
-                    raf = new RandomAccessFile(filePath, "r");
-                } catch (FileNotFoundException e) {
-                    throw new RuntimeException(String.format("Could not locate file %s", filePath));
-                }
-                try {
-                    fileLength = raf.length();
-                    if (fileLength > lastKnownPosition) {
-                        raf.seek(lastKnownPosition);
-                        read = raf.read(buf);
-
-                        try {
-                            blocks.put(ReadResult.builder()
-                                    .buffer(buf)
-                                    .readBytes(read)
-                                    .blockNumber(blockNumber)
-                                    .build());
-                            blockNumber++;
-                        } catch (InterruptedException e) {
-                            logger.severe("Could not add buffer to the queue.");
-                        }
-                        lastKnownPosition = raf.getFilePointer();
-                    }
-                    raf.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-            try {
-                blocks.put(ReadResult.builder()
-                        .blockNumber(blockNumber)
-                        .readBytes(-1)
-                        .buffer(new byte[0])
-                        .build());
-            } catch (InterruptedException e) {
-                logger.severe("Could not add last buffer to the queue.");
-            }
-        };
-        ExecutorService svc = Executors.newSingleThreadExecutor();
-        svc.submit(producerTask);
+    @Override
+    public synchronized int available() {
+        return closed ? 0 : (int) Math.min(Integer.MAX_VALUE, buffer.available(position));
     }
 
-    public synchronized void notifyWriteCompletion() {
-        this.writeComplete = true;
+    @Override
+    public void close() {
+        closed = true;
+        // Wakes up a blocked reader, which gives the lock back once it has seen the stream is closed.
+        buffer.signalChange();
+        synchronized (this) {
+            detach();
+        }
     }
 
     @Override
     public int read() throws IOException {
         byte[] buf = new byte[1];
-        int read = read(buf);
-        return read != -1 ? (int) buf[0] : read;
+        int read = read(buf, 0, 1);
+        return read != -1 ? buf[0] & 0xFF : read;
     }
 
     @Override
-    public int read(byte[] buf) throws IOException {
-        if ((fileLength > 0) && writeComplete && (readBytes >= fileLength) && leftOver == null) {
-            return -1;
-        }
-        if (leftOver != null) {
-            int read = handleLeftOver(buf);
-            readBytes+=read;
-            return read;
+    public synchronized int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
         }
-
-        ReadResult rr = null;
-        try {
-            rr = blocks.take();
-            logger.finest(String.format("Reading block %s.", rr.getBlockNumber()));
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (detached) {
+            return -1;
         }
-
-        if (rr.getReadBytes() == -1) {
+        int read = buffer.read(position, buf, off, len, () -> closed);
+        if (read == -1) {
+            detach();
             return -1;
-        }else if (buf.length >= rr.getReadBytes()) {
-            System.arraycopy(rr.getBuffer(), 0, buf, 0, rr.getReadBytes());
-            readBytes += rr.getReadBytes();
-            return rr.getReadBytes();
-        } else {
-            System.arraycopy(rr.getBuffer(), 0, buf, 0, buf.length);
-            createLeftOver(rr.getBuffer(), buf.length, rr.getReadBytes() - buf.length);
-            readBytes += buf.length;
-            return buf.length;
         }
-
-    }
-
-    private void createLeftOver(byte[] initialBuf, int startIndex, int leftOverSize) {
-        leftOver = new byte[leftOverSize];
-        System.arraycopy(initialBuf, startIndex, leftOver, 0, leftOverSize);
+        position += read;
+        return read;
     }
 
-    private int handleLeftOver(byte[] b) {
-        if (b.length >= leftOver.length) {
-            System.arraycopy(leftOver, 0, b, 0, leftOver.length);
-            int read = leftOver.length;
-            leftOver = null;
-            return read;
-        } else {
-            System.arraycopy(leftOver, 0, b, 0, b.length);
-            byte[] newLeftOver = new byte[leftOver.length - b.length];
-            System.arraycopy(leftOver, b.length, newLeftOver, 0, newLeftOver.length);
-            leftOver = newLeftOver;
-            return b.length;
+    private void detach() {
+        if (!detached) {
+            detached = true;
+            buffer.detach();
         }
     }
 
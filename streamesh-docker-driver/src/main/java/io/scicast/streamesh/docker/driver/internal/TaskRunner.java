@@ -1,20 +1,12 @@
 package io.scicast.streamesh.docker.driver.internal;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
 import com.github.dockerjava.api.command.StartContainerCmd;
-import com.github.dockerjava.api.model.Container;
 import io.scicast.streamesh.core.TaskDescriptor;
 import io.scicast.streamesh.core.TaskExecutionEvent;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Optional;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
@@ -22,109 +14,113 @@ public class TaskRunner {
 
 
     private static final String CONTAINER_NOT_FOUND_MSG = "Could not locate container with id %s for job %s";
+    private static final String OUT_OF_MEMORY_MSG = "The container ran out of memory";
+    private static final String EXIT_CODE_MSG = "The container exited with code %s";
+    private static final String UNKNOWN_EXIT_CODE_MSG = "Could not read the exit code of the container";
     private DockerClient client;
-    private TaskDescriptor descriptor;
+    private ContainerEventMonitor monitor;
+    private volatile TaskDescriptor descriptor;
+    private boolean outOfMemory;
     Consumer<TaskExecutionEvent<?>> onStatusUpdate;
 
     private Logger logger = Logger.getLogger(getClass().getName());
 
-    public TaskRunner(DockerClient client, TaskDescriptor descriptor, Consumer<TaskExecutionEvent<?>> onStatusUpdate) {
+    public TaskRunner(DockerClient client, ContainerEventMonitor monitor, TaskDescriptor descriptor, Consumer<TaskExecutionEvent<?>> onStatusUpdate) {
         this.client = client;
+        this.monitor = monitor;
         this.descriptor = descriptor;
         this.onStatusUpdate = onStatusUpdate;
     }
 
-    public TaskDescriptor init() {
-        Optional<Container> c = findContainer();
-        if (c.isEmpty()) {
-            descriptor = descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
-                    .withErrorMessage(
-                            String.format(CONTAINER_NOT_FOUND_MSG, descriptor.getContainerId(), descriptor.getId()));
-            onStatusUpdate.accept(TaskExecutionEvent.builder()
-                    .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
-                    .descriptor(descriptor)
-                    .build());
-            return descriptor;
-        }
-
+    /**
+     * Starts the container created for the task and publishes the resulting status. The container is known to
+     * exist, since its id comes straight from the create call, so no lookup precedes the start.
+     */
+    public TaskDescriptor start() {
         StartContainerCmd start = client.startContainerCmd(descriptor.getContainerId());
-        ExecutorService svc = Executors.newSingleThreadExecutor();
-        Future<?> startFut = svc.submit(() -> {
-            new StartObserver(jd -> {
-                onStatusUpdate.accept(jd);
-            });
-            try {
-                start.exec();
-                descriptor = descriptor.withStatus(TaskDescriptor.TaskStatus.RUNNING);
-                descriptor = descriptor.withStarted(LocalDateTime.now());
-                onStatusUpdate.accept(TaskExecutionEvent.builder()
-                    .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
-                    .descriptor(descriptor)
-                    .build());
-            } catch (Exception e) {
-               descriptor = descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
-                    .withErrorMessage(e.getMessage());
-               onStatusUpdate.accept(TaskExecutionEvent.builder()
-                    .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
-                    .descriptor(descriptor)
-                    .build());
-            }
-        });
+        monitor.track(descriptor.getContainerId(), this::onContainerEvent);
         try {
-            startFut.get();
-            svc.shutdown();
-        } catch (InterruptedException e) {
-            logger.warning(e.getMessage());
-        } catch (ExecutionException e) {
-            logger.warning(e.getMessage());
+            start.exec();
+            markRunning();
+        } catch (Exception e) {
+            monitor.untrack(descriptor.getContainerId());
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(e.getMessage()));
         }
         return descriptor;
     }
 
-
-    private Optional<Container> findContainer() {
-        return client.listContainersCmd()
-                .withShowAll(true)
-                .withIdFilter(Arrays.asList(descriptor.getContainerId())).exec()
-                .stream()
-                .findFirst();
+    private synchronized void onContainerEvent(ContainerEvent event) {
+        if (isTerminal()) {
+            return;
+        }
+        switch (event.getType()) {
+            case STARTED:
+                markRunning();
+                break;
+            case OUT_OF_MEMORY:
+                outOfMemory = true;
+                break;
+            case EXITED:
+                monitor.untrack(descriptor.getContainerId());
+                logger.finest("Container " + descriptor.getContainerId() + " has exited");
+                onExit(event.getExitCode());
+                break;
+            case REMOVED:
+                monitor.untrack(descriptor.getContainerId());
+                publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                        .withErrorMessage(String.format(CONTAINER_NOT_FOUND_MSG, descriptor.getContainerId(), descriptor.getId())));
+                break;
+        }
     }
 
-
-    class StartObserver {
-
-        private Consumer<TaskExecutionEvent<?>> onContainerStateChange;
-
-        StartObserver(Consumer<TaskExecutionEvent<?>> onContainerStateChange) {
-            this.onContainerStateChange = onContainerStateChange;
-            track();
+    private void onExit(Integer exitCode) {
+        if (exitCode == null) {
+            // Exits found by the reconciliation sweep carry no exit code.
+            try {
+                InspectContainerResponse.ContainerState state = client.inspectContainerCmd(descriptor.getContainerId())
+                        .exec()
+                        .getState();
+                exitCode = state.getExitCode();
+                outOfMemory |= Boolean.TRUE.equals(state.getOOMKilled());
+            } catch (Exception e) {
+                logger.warning(String.format("Could not read the exit code of container %s: %s",
+                        descriptor.getContainerId(), e.getMessage()));
+            }
         }
+        if (outOfMemory) {
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(OUT_OF_MEMORY_MSG));
+        } else if (exitCode == null) {
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(UNKNOWN_EXIT_CODE_MSG));
+        } else if (exitCode != 0) {
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.FAILED)
+                    .withErrorMessage(String.format(EXIT_CODE_MSG, exitCode)));
+        } else {
+            publish(descriptor.withStatus(TaskDescriptor.TaskStatus.COMPLETE));
+        }
+    }
 
-        private void track() {
-            TimerTask repeatedTask = new TimerTask() {
-                public void run() {
-                    Optional<Container> container = findContainer();
-                    if(container.isPresent()) {
-                        String state = container.get().getState();
-                        if (state.equalsIgnoreCase("running") || state.equalsIgnoreCase("exited")) {
-                            logger.finest("Container " + descriptor.getContainerId() + " is in state " + state);
-                            descriptor = descriptor.withStatus(state.equalsIgnoreCase("running") ? TaskDescriptor.TaskStatus.RUNNING : TaskDescriptor.TaskStatus.COMPLETE);
-                            onContainerStateChange.accept(TaskExecutionEvent.builder()
-                                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
-                                .descriptor(descriptor)
-                                .build());
-                            if (descriptor.getStatus().equals(TaskDescriptor.TaskStatus.COMPLETE)) {
-                                this.cancel();
-                            }
-                        }
-                    }
-                }
-            };
-            Timer timer = new Timer("Container " + descriptor.getContainerId() + " monitor");
-            timer.scheduleAtFixedRate(repeatedTask, 0, 1000);
+    private synchronized void markRunning() {
+        if (isTerminal() || TaskDescriptor.TaskStatus.RUNNING.equals(descriptor.getStatus())) {
+            return;
         }
+        publish(descriptor.withStatus(TaskDescriptor.TaskStatus.RUNNING)
+                .withStarted(LocalDateTime.now()));
+    }
 
+    private boolean isTerminal() {
+        return TaskDescriptor.TaskStatus.COMPLETE.equals(descriptor.getStatus())
+                || TaskDescriptor.TaskStatus.FAILED.equals(descriptor.getStatus());
+    }
 
+    private synchronized void publish(TaskDescriptor updated) {
+        descriptor = updated;
+        onStatusUpdate.accept(TaskExecutionEvent.builder()
+                .type(TaskExecutionEvent.EventType.CONTAINER_STATE_CHANGE)
+                .descriptor(descriptor)
+                .build());
     }
 
 }
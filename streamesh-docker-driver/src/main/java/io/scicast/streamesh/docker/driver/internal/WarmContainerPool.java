@@ -0,0 +1,139 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import io.scicast.streamesh.core.WarmPool;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Idle, paused containers kept ready for a single micropipe definition. The number of containers kept follows the
+ * arrival rate of the tasks over a recent window: the pool aims at holding as many containers as tasks are expected
+ * to arrive while a new container is being warmed up, within the maximum size of the pool. Containers idle for longer
+ * than the idle timeout are disposed of.
+ */
+public class WarmContainerPool {
+
+    public static final String MAX_SIZE_PROPERTY = "streamesh.docker.warm.pool.max.size";
+    public static final String IDLE_TIMEOUT_PROPERTY = "streamesh.docker.warm.pool.idle.millis";
+    public static final String ARRIVAL_WINDOW_PROPERTY = "streamesh.docker.warm.pool.window.millis";
+    public static final String WARMUP_HORIZON_PROPERTY = "streamesh.docker.warm.pool.horizon.millis";
+
+    private static final int DEFAULT_MAX_SIZE = 4;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long ARRIVAL_WINDOW_MILLIS = Long.getLong(ARRIVAL_WINDOW_PROPERTY, 60_000);
+    private static final long WARMUP_HORIZON_MILLIS = Long.getLong(WARMUP_HORIZON_PROPERTY, 10_000);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ExecutionEngine engine;
+    private final Supplier<WarmContainer> factory;
+    private final Consumer<WarmContainer> disposer;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final Deque<WarmContainer> idle = new ConcurrentLinkedDeque<>();
+    private final Deque<Long> arrivals = new ArrayDeque<>();
+    private final AtomicInteger warming = new AtomicInteger();
+
+    public WarmContainerPool(ExecutionEngine engine, WarmPool settings,
+                             Supplier<WarmContainer> factory, Consumer<WarmContainer> disposer) {
+        this.engine = engine;
+        this.factory = factory;
+        this.disposer = disposer;
+        this.maxSize = settings.getMaxSize() > 0
+                ? settings.getMaxSize()
+                : Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+        this.idleTimeoutMillis = settings.getIdleTimeoutSeconds() > 0
+                ? TimeUnit.SECONDS.toMillis(settings.getIdleTimeoutSeconds())
+                : Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Hands out the most recently warmed container, if any, and tops the pool up in the background.
+     */
+    public Optional<WarmContainer> acquire() {
+        recordArrival(System.currentTimeMillis());
+        WarmContainer container = idle.pollFirst();
+        replenish();
+        return Optional.ofNullable(container);
+    }
+
+    public void maintain() {
+        long now = System.currentTimeMillis();
+        WarmContainer oldest;
+        while ((oldest = idle.peekLast()) != null
+                && (now - oldest.getIdleSince() > idleTimeoutMillis || idle.size() > maxSize)) {
+            if (idle.removeLastOccurrence(oldest)) {
+                dispose(oldest);
+            }
+        }
+        replenish();
+    }
+
+    public int getIdleContainers() {
+        return idle.size();
+    }
+
+    private void replenish() {
+        int missing = targetSize() - idle.size() - warming.get();
+        for (int i = 0; i < missing; i++) {
+            warming.incrementAndGet();
+            engine.execute(() -> {
+                try {
+                    idle.addFirst(factory.get());
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Could not warm up a container: " + e.getMessage(), e);
+                } finally {
+                    warming.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private synchronized void recordArrival(long time) {
+        arrivals.addLast(time);
+        expireArrivals(time);
+    }
+
+    private synchronized int targetSize() {
+        expireArrivals(System.currentTimeMillis());
+        if (arrivals.isEmpty()) {
+            return 0;
+        }
+        int expected = (int) Math.ceil((double) arrivals.size() * WARMUP_HORIZON_MILLIS / ARRIVAL_WINDOW_MILLIS);
+        return Math.min(maxSize, Math.max(1, expected));
+    }
+
+    private void expireArrivals(long now) {
+        while (!arrivals.isEmpty() && now - arrivals.peekFirst() > ARRIVAL_WINDOW_MILLIS) {
+            arrivals.pollFirst();
+        }
+    }
+
+    private void dispose(WarmContainer container) {
+        engine.execute(() -> disposer.accept(container));
+    }
+
+    @Getter
+    @Builder
+    public static class WarmContainer {
+
+        private String containerId;
+        private String directory;
+        private Map<String, String> outputDirectories;
+        private List<String> entrypoint;
+        private long idleSince;
+    }
+}
@@ -0,0 +1,106 @@
+package io.scicast.streamesh.docker.driver;
+
+import io.scicast.streamesh.core.TaskOutput;
+import io.scicast.streamesh.core.exception.NotFoundException;
+import io.scicast.streamesh.docker.driver.internal.OutputDirectoryWatcher;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TaskOutputManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private TaskOutputManager manager;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        manager = new TaskOutputManager(TaskOutput.builder()
+                .name("plots")
+                .outputDir("/tmp/plots")
+                .fileNamePattern("*.png")
+                .multipart(true)
+                .build(), directory.toString(), new OutputDirectoryWatcher());
+    }
+
+    @Test
+    public void testEveryNonEmptyMatchingFileIsReportedOnceAsAPart() throws Exception {
+        List<String> parts = new CopyOnWriteArrayList<>();
+        manager.watchAvailability(parts::add);
+        write("a.png", "a");
+        write("b.png", "b");
+        write("empty.png", "");
+        write("notes.txt", "not a part");
+
+        manager.notifyTermination();
+        write("late.png", "written after termination");
+
+        // Parts seen by the watcher thread may still be on their way to the callback.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (parts.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("a.png", "b.png"), parts.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPartsFirstRequestedAfterTerminationAreComplete() throws Exception {
+        write("a.png", "first part");
+        manager.watchAvailability(part -> { });
+        manager.notifyTermination();
+
+        assertEquals("first part", readFully(manager.requestPartStream("a.png")));
+    }
+
+    @Test
+    public void testPartsRequestedBeforeTerminationCompleteWithTheTask() throws Exception {
+        manager.watchAvailability(part -> { });
+        InputStream stream = manager.requestPartStream("a.png");
+        CompletableFuture<String> content = CompletableFuture.supplyAsync(() -> readQuietly(stream));
+        write("a.png", "first part");
+
+        manager.notifyTermination();
+
+        assertEquals("first part", content.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void testFilesNotMatchingThePatternAreNotParts() {
+        manager.requestPartStream("../secret.png");
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readFully(InputStream stream) throws Exception {
+        return CompletableFuture.supplyAsync(() -> readQuietly(stream)).get(5, TimeUnit.SECONDS);
+    }
+
+    private String readQuietly(InputStream stream) {
+        try (InputStream in = stream) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
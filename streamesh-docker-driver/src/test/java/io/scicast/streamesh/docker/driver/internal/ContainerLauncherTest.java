@@ -0,0 +1,126 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ContainerLauncherTest {
+
+    private ExecutionEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = ExecutionEngine.builder()
+                .threads(8)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testLaunchesBeyondTheConcurrencyWaitInTheQueue() throws Exception {
+        ContainerLauncher launcher = new ContainerLauncher(engine, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> launches = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            launches.add(launcher.submit("task-" + i, handle -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                await(release);
+                running.decrementAndGet();
+            }));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(4, launcher.getPendingLaunches());
+        release.countDown();
+        CompletableFuture.allOf(launches.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, launcher.getPendingLaunches());
+    }
+
+    @Test
+    public void testPendingLaunchesAreCancelledWithoutRunning() throws Exception {
+        ContainerLauncher launcher = new ContainerLauncher(engine, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> first = launcher.submit("first", handle -> await(release));
+        CompletableFuture<Void> second = launcher.submit("second", handle -> ran.set(true));
+
+        assertTrue(launcher.cancel("second"));
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+        assertFalse(launcher.cancel("second"));
+    }
+
+    @Test
+    public void testLaunchesCancelledWhileStartingDoNotKeepTheirContainer() throws Exception {
+        ContainerLauncher launcher = new ContainerLauncher(engine, 1);
+        CountDownLatch starting = new CountDownLatch(1);
+        CountDownLatch created = new CountDownLatch(1);
+        AtomicBoolean kept = new AtomicBoolean(true);
+        CompletableFuture<Void> launch = launcher.submit("task", handle -> {
+            starting.countDown();
+            await(created);
+            kept.set(handle.containerCreated());
+        });
+
+        assertTrue(starting.await(5, TimeUnit.SECONDS));
+        assertTrue(launcher.cancel("task"));
+        created.countDown();
+
+        launch.get(5, TimeUnit.SECONDS);
+        assertFalse(kept.get());
+    }
+
+    @Test
+    public void testLaunchesCannotBeCancelledOnceTheirContainerIsCreated() throws Exception {
+        ContainerLauncher launcher = new ContainerLauncher(engine, 1);
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch killed = new CountDownLatch(1);
+        AtomicReference<ContainerLauncher.LaunchHandle> launchHandle = new AtomicReference<>();
+        CompletableFuture<Void> launch = launcher.submit("task", handle -> {
+            assertTrue(handle.containerCreated());
+            launchHandle.set(handle);
+            created.countDown();
+            await(killed);
+        });
+
+        assertTrue(created.await(5, TimeUnit.SECONDS));
+        assertFalse(launcher.cancel("task"));
+        // The launch of a killed task stops reporting its status.
+        assertTrue(launchHandle.get().isCancelled());
+        killed.countDown();
+        launch.get(5, TimeUnit.SECONDS);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
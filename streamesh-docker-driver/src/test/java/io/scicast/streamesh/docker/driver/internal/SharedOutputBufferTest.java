@@ -0,0 +1,96 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class SharedOutputBufferTest {
+
+    private static final int CAPACITY = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private SharedOutputBuffer buffer;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("output");
+        buffer = new SharedOutputBuffer(file.toString(), new OutputDirectoryWatcher(), CAPACITY);
+    }
+
+    @Test
+    public void testReadersGetTheBytesWrappingAroundTheEndOfTheRing() throws IOException {
+        append("abcdef");
+        InputStream leader = new TailingInputStream(buffer);
+        InputStream follower = new TailingInputStream(buffer);
+        assertEquals("abcd", read(follower, 4));
+        assertEquals("abcdef", read(leader, 6));
+
+        append("ghijkl");
+        // The ring is filled up to its end first, then from its start again.
+        assertEquals("gh", read(leader, 2));
+        assertEquals("ijkl", read(leader, 4));
+
+        assertEquals("efghijkl", read(follower, 8));
+    }
+
+    @Test
+    public void testReadersBehindTheRingAreServedFromTheFile() throws IOException {
+        String content = "the quick brown fox jumps over the lazy dog";
+        append(content);
+        buffer.notifyWriteCompletion();
+        InputStream leader = new TailingInputStream(buffer);
+        InputStream laggard = new TailingInputStream(buffer);
+
+        assertEquals(content, readFully(leader));
+        assertEquals(content, readFully(laggard));
+    }
+
+    @Test
+    public void testReleasedBuffersEndTheirReaders() throws IOException {
+        append("abc");
+        InputStream reader = new TailingInputStream(buffer);
+        assertEquals("abc", read(reader, 3));
+
+        buffer.release();
+
+        assertEquals(-1, reader.read());
+    }
+
+    private void append(String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private String read(InputStream stream, int count) throws IOException {
+        byte[] bytes = new byte[count];
+        int offset = 0;
+        while (offset < count) {
+            int read = stream.read(bytes, offset, count - offset);
+            assertTrue(read > 0);
+            offset += read;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readFully(InputStream stream) throws IOException {
+        StringBuilder content = new StringBuilder();
+        byte[] bytes = new byte[3];
+        int read;
+        while ((read = stream.read(bytes)) != -1) {
+            content.append(new String(bytes, 0, read, StandardCharsets.UTF_8));
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package io.scicast.streamesh.docker.driver.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TailingInputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OutputDirectoryWatcher watcher;
+    private Path file;
+    private SharedOutputBuffer buffer;
+
+    @Before
+    public void setUp() {
+        watcher = new OutputDirectoryWatcher();
+        file = folder.getRoot().toPath().resolve("output");
+        buffer = new SharedOutputBuffer(file.toString(), watcher);
+    }
+
+    @Test
+    public void testStreamsFollowTheFileUntilItsWriteCompletes() throws Exception {
+        InputStream stream = new TailingInputStream(buffer);
+        CompletableFuture<String> content = CompletableFuture.supplyAsync(() -> readFully(stream));
+
+        // The file does not exist yet when the stream starts reading.
+        append("first line\n");
+        Thread.sleep(50);
+        append("second line\n");
+        assertFalse(content.isDone());
+        buffer.notifyWriteCompletion();
+
+        assertEquals("first line\nsecond line\n", content.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testClosingAStreamEndsItsBlockedRead() throws Exception {
+        InputStream stream = new TailingInputStream(buffer);
+        CompletableFuture<String> content = CompletableFuture.supplyAsync(() -> readFully(stream));
+        append("partial");
+        Thread.sleep(50);
+
+        stream.close();
+
+        // Whatever the stream had read by then is kept, the read itself no longer waits for the file.
+        assertTrue("partial".startsWith(content.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testWatchedDirectoriesNotifyTheirListeners() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        Closeable registration = watcher.register(folder.getRoot().toPath(), changed::countDown);
+
+        append("content");
+
+        assertTrue(changed.await(30, TimeUnit.SECONDS));
+        registration.close();
+        registration.close();
+    }
+
+    private void append(String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private String readFully(InputStream stream) {
+        StringBuilder content = new StringBuilder();
+        byte[] bytes = new byte[4];
+        int read;
+        try {
+            while ((read = stream.read(bytes)) != -1) {
+                content.append(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,490 @@
+package io.scicast.streamesh.file.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.scicast.streamesh.core.*;
+import io.scicast.streamesh.core.exception.NotFoundException;
+import io.scicast.streamesh.core.flow.FlowDefinition;
+import io.scicast.streamesh.core.flow.FlowGraph;
+import io.scicast.streamesh.core.flow.FlowGraphBuilder;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import io.scicast.streamesh.core.flow.execution.ExecutionGraph;
+import io.scicast.streamesh.core.flow.execution.ExecutionPlan;
+import io.scicast.streamesh.core.flow.execution.RuntimeNodeState;
+import io.scicast.streamesh.core.internal.InMemoryStreameshStore;
+import io.scicast.streamesh.core.internal.reflect.Scope;
+import io.scicast.streamesh.core.internal.reflect.ScopeFactory;
+import io.scicast.streamesh.file.store.internal.RecordLog;
+import io.scicast.streamesh.file.store.internal.StoreRecord;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Durable store that keeps the working set in an {@link InMemoryStreameshStore} and records every
+ * mutation in an append-only log, which is compacted into a snapshot once it grows past a threshold.
+ * Flow instances are recorded node by node, and only the nodes that changed since the last record are appended.
+ * On startup, tasks and flow instances that were still in progress are marked as failed and killed respectively.
+ * The store is only used when selected through the streamesh.store property.
+ */
+public class FileBasedStreameshStore implements StreameshStore {
+
+    public static final String STORE_DIR_PROPERTY = "streamesh.store.file.dir";
+    public static final String SYNC_PROPERTY = "streamesh.store.file.sync";
+    public static final String SNAPSHOT_THRESHOLD_PROPERTY = "streamesh.store.file.snapshot.threshold";
+    private static final long DEFAULT_SNAPSHOT_THRESHOLD = 100_000;
+    private static final String DEFAULT_STORE_DIR = "streamesh-store";
+    private static final String INTERRUPTED_TASK_MSG = "The task was interrupted by a server restart";
+    private static final Set<TaskDescriptor.TaskStatus> TERMINAL_TASK_STATUSES = EnumSet.of(
+            TaskDescriptor.TaskStatus.COMPLETE,
+            TaskDescriptor.TaskStatus.FAILED,
+            TaskDescriptor.TaskStatus.KILLED);
+    private static final Set<FlowInstance.FlowInstanceStatus> TERMINAL_FLOW_INSTANCE_STATUSES = EnumSet.of(
+            FlowInstance.FlowInstanceStatus.COMPLETE,
+            FlowInstance.FlowInstanceStatus.FAILED,
+            FlowInstance.FlowInstanceStatus.KILLED);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final InMemoryStreameshStore delegate = new InMemoryStreameshStore();
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Path directory;
+    private final boolean sync;
+    private final long snapshotThreshold;
+
+    private final Object lock = new Object();
+    private final Map<String, Long> definitionOrder = new ConcurrentHashMap<>();
+    // Last records of the nodes of running flow instances, guarded by the lock. The flow executor changes their
+    // graphs without holding the lock, so snapshots are written from these records rather than from the graphs.
+    private final Map<String, Map<String, String>> flowNodeRecords = new HashMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private long definitionSequence;
+
+    private StreameshContext context;
+    private RecordLog log;
+
+    public FileBasedStreameshStore() {
+        this(Paths.get(System.getProperty(STORE_DIR_PROPERTY, DEFAULT_STORE_DIR)),
+                Boolean.getBoolean(SYNC_PROPERTY),
+                Long.getLong(SNAPSHOT_THRESHOLD_PROPERTY, DEFAULT_SNAPSHOT_THRESHOLD));
+    }
+
+    public FileBasedStreameshStore(Path directory, boolean sync, long snapshotThreshold) {
+        this.directory = directory;
+        this.sync = sync;
+        this.snapshotThreshold = snapshotThreshold;
+    }
+
+    @Override
+    public void init(StreameshContext context) {
+        synchronized (lock) {
+            this.context = context;
+            long start = System.currentTimeMillis();
+            Map<String, FlowInstance> flowInstances = new LinkedHashMap<>();
+            Map<String, Map<String, RuntimeNodeState>> flowNodes = new HashMap<>();
+            Map<String, Map<String, TaskDescriptor>> orphanTasks = new HashMap<>();
+            long count;
+            try {
+                log = new RecordLog(directory, sync);
+                count = log.replay(line -> replay(line, flowInstances, flowNodes, orphanTasks));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not restore the store from " + directory, e);
+            }
+            restoreFlowInstances(flowInstances.values(), flowNodes);
+            failInterruptedTasks();
+            compact();
+            logger.info(String.format("Restored %s store records from %s in %s ms.",
+                    count, directory, System.currentTimeMillis() - start));
+        }
+    }
+
+    @Override
+    public void storeDefinition(Definition definition) {
+        StoreRecord.StoreRecordBuilder record = StoreRecord.builder()
+                .operation(StoreRecord.Operation.STORE_DEFINITION);
+        if (definition instanceof MicroPipe) {
+            record.microPipe((MicroPipe) definition);
+        } else {
+            record.flowDefinition((FlowDefinition) definition);
+        }
+        write(serialize(record.build()), () -> {
+            delegate.storeDefinition(definition);
+            definitionOrder.put(definition.getId(), definitionSequence++);
+        });
+    }
+
+    @Override
+    public void storeFlowInstance(FlowInstance instance) {
+        String instanceRecord = serialize(StoreRecord.builder()
+                .operation(StoreRecord.Operation.STORE_FLOW_INSTANCE)
+                .flowInstance(instance)
+                .build());
+        Map<String, String> nodeRecords = instance.getExecutionGraph() != null
+                ? instance.getExecutionGraph().captureState().stream()
+                    .collect(Collectors.toMap(RuntimeNodeState::getName, node -> serialize(nodeRecord(instance.getId(), node))))
+                : Collections.emptyMap();
+        write(() -> {
+            List<String> records = new ArrayList<>();
+            if (!instance.equals(storedFlowInstance(instance.getId()))) {
+                records.add(instanceRecord);
+            }
+            Map<String, String> written = flowNodeRecords.getOrDefault(instance.getId(), Collections.emptyMap());
+            nodeRecords.forEach((name, record) -> {
+                if (!record.equals(written.get(name))) {
+                    records.add(record);
+                }
+            });
+            return records;
+        }, () -> {
+            delegate.storeFlowInstance(instance);
+            if (TERMINAL_FLOW_INSTANCE_STATUSES.contains(instance.getStatus())) {
+                flowNodeRecords.remove(instance.getId());
+            } else {
+                flowNodeRecords.put(instance.getId(), nodeRecords);
+            }
+        });
+    }
+
+    @Override
+    public FlowInstance getFlowInstance(String instanceId) {
+        return delegate.getFlowInstance(instanceId);
+    }
+
+    @Override
+    public Set<FlowInstance> getFlowInstancesByDefinition(String flowDefinitionId) {
+        return delegate.getFlowInstancesByDefinition(flowDefinitionId);
+    }
+
+    @Override
+    public Set<TaskDescriptor> getTasksByFlowInstance(String flowInstanceId) {
+        return delegate.getTasksByFlowInstance(flowInstanceId);
+    }
+
+    @Override
+    public Definition getDefinitionById(String id) {
+        return delegate.getDefinitionById(id);
+    }
+
+    @Override
+    public Definition getDefinitionByName(String name) {
+        return delegate.getDefinitionByName(name);
+    }
+
+    @Override
+    public void removeDefinition(String id) {
+        write(serialize(StoreRecord.builder()
+                .operation(StoreRecord.Operation.REMOVE_DEFINITION)
+                .id(id)
+                .build()), () -> {
+            delegate.removeDefinition(id);
+            definitionOrder.remove(id);
+        });
+    }
+
+    @Override
+    public Set<Definition> getAllDefinitions() {
+        return delegate.getAllDefinitions();
+    }
+
+    @Override
+    public Set<TaskDescriptor> getAllTasks() {
+        return delegate.getAllTasks();
+    }
+
+    @Override
+    public Set<TaskDescriptor> getTasksByDefinition(String definitionId) {
+        return delegate.getTasksByDefinition(definitionId);
+    }
+
+    @Override
+    public Set<TaskDescriptor> getTasksByStatus(TaskDescriptor.TaskStatus status) {
+        return delegate.getTasksByStatus(status);
+    }
+
+    @Override
+    public TaskDescriptor getTaskById(String taskId) {
+        return delegate.getTaskById(taskId);
+    }
+
+    @Override
+    public void updateTask(String definitionId, TaskDescriptor descriptor) {
+        write(serialize(taskRecord(definitionId, descriptor)), () -> delegate.updateTask(definitionId, descriptor));
+    }
+
+    @Override
+    public Set<FlowInstance> getAllFlowInstances() {
+        return delegate.getAllFlowInstances();
+    }
+
+    @Override
+    public void removeTask(String taskId) {
+        write(serialize(StoreRecord.builder()
+                .operation(StoreRecord.Operation.REMOVE_TASK)
+                .id(taskId)
+                .build()), () -> delegate.removeTask(taskId));
+    }
+
+    @Override
+    public void removeFlowInstance(String flowInstanceId) {
+        write(serialize(StoreRecord.builder()
+                .operation(StoreRecord.Operation.REMOVE_FLOW_INSTANCE)
+                .id(flowInstanceId)
+                .build()), () -> {
+            delegate.removeFlowInstance(flowInstanceId);
+            flowNodeRecords.remove(flowInstanceId);
+        });
+    }
+
+    private void write(String record, Runnable mutation) {
+        write(() -> Collections.singletonList(record), mutation);
+    }
+
+    private void write(Supplier<List<String>> records, Runnable mutation) {
+        boolean compactionDue;
+        synchronized (lock) {
+            if (log == null) {
+                throw new IllegalStateException("The store has not been initialised.");
+            }
+            // The in-memory state and the log are updated under the same lock, so that the log order matches the order
+            // in which mutations became visible.
+            List<String> changes = records.get();
+            mutation.run();
+            try {
+                if (!changes.isEmpty()) {
+                    log.append(changes);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Could not persist store record to " + directory, e);
+            }
+            compactionDue = log.getRecordsSinceSnapshot() >= snapshotThreshold;
+        }
+        if (compactionDue && compacting.compareAndSet(false, true)) {
+            context.getExecutionEngine().execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private void compact() {
+        List<Definition> definitions;
+        List<TaskDescriptor> tasks;
+        List<FlowInstance> flowInstances;
+        Map<String, List<String>> nodeRecords = new HashMap<>();
+        Map<String, Set<RuntimeNodeState>> finishedGraphs = new HashMap<>();
+        synchronized (lock) {
+            // Only the current entities are collected while writes are blocked: they are serialized once the log
+            // has been rotated, while new records go to the new log.
+            definitions = definitionOrder.entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(entry -> delegate.getDefinitionById(entry.getKey()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            tasks = new ArrayList<>(delegate.getAllTasks());
+            flowInstances = new ArrayList<>(delegate.getAllFlowInstances());
+            flowInstances.forEach(instance -> {
+                Map<String, String> records = flowNodeRecords.get(instance.getId());
+                if (records != null) {
+                    nodeRecords.put(instance.getId(), new ArrayList<>(records.values()));
+                } else if (instance.getExecutionGraph() != null) {
+                    finishedGraphs.put(instance.getId(), instance.getExecutionGraph().captureState());
+                }
+            });
+            try {
+                log.rotate();
+            } catch (IOException e) {
+                logger.severe("Could not rotate store log in " + directory + ": " + e.getMessage());
+                return;
+            }
+        }
+        Stream<String> definitionRecords = definitions.stream()
+                .map(definition -> serialize(definition instanceof MicroPipe
+                        ? StoreRecord.builder()
+                            .operation(StoreRecord.Operation.STORE_DEFINITION)
+                            .microPipe((MicroPipe) definition)
+                            .build()
+                        : StoreRecord.builder()
+                            .operation(StoreRecord.Operation.STORE_DEFINITION)
+                            .flowDefinition((FlowDefinition) definition)
+                            .build()));
+        Stream<String> taskRecords = tasks.stream()
+                .map(task -> serialize(taskRecord(task.getServiceId(), task)));
+        Stream<String> flowInstanceRecords = flowInstances.stream()
+                .flatMap(instance -> Stream.concat(
+                        Stream.of(serialize(StoreRecord.builder()
+                                .operation(StoreRecord.Operation.STORE_FLOW_INSTANCE)
+                                .flowInstance(instance)
+                                .executionGraph(finishedGraphs.get(instance.getId()))
+                                .build())),
+                        nodeRecords.getOrDefault(instance.getId(), Collections.emptyList()).stream()));
+        try {
+            log.writeSnapshot(Stream.of(definitionRecords, taskRecords, flowInstanceRecords)
+                    .flatMap(s -> s)
+                    .iterator());
+        } catch (IOException e) {
+            logger.severe("Could not write store snapshot to " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void replay(String line, Map<String, FlowInstance> flowInstances,
+                        Map<String, Map<String, RuntimeNodeState>> flowNodes,
+                        Map<String, Map<String, TaskDescriptor>> orphanTasks) {
+        StoreRecord record;
+        try {
+            record = mapper.readValue(line, StoreRecord.class);
+        } catch (IOException e) {
+            // Most likely the last record was only partially written before the process died.
+            logger.warning("Skipping unreadable store record: " + e.getMessage());
+            return;
+        }
+        switch (record.getOperation()) {
+            case STORE_DEFINITION:
+                Definition definition = record.getMicroPipe() != null
+                        ? record.getMicroPipe()
+                        : compile(record.getFlowDefinition());
+                if (definition != null) {
+                    delegate.storeDefinition(definition);
+                    definitionOrder.put(definition.getId(), definitionSequence++);
+                    Map<String, TaskDescriptor> orphans = orphanTasks.remove(definition.getId());
+                    if (orphans != null && definition instanceof MicroPipe) {
+                        orphans.values().forEach(task -> delegate.updateTask(definition.getId(), task));
+                    }
+                }
+                break;
+            case REMOVE_DEFINITION:
+                delegate.removeDefinition(record.getId());
+                definitionOrder.remove(record.getId());
+                break;
+            case UPDATE_TASK:
+                if (delegate.getDefinitionById(record.getDefinitionId()) instanceof MicroPipe) {
+                    delegate.updateTask(record.getDefinitionId(), record.getTask());
+                } else {
+                    // A snapshot taken while a definition was being replaced lists its tasks before the definition.
+                    orphanTasks.computeIfAbsent(record.getDefinitionId(), id -> new LinkedHashMap<>())
+                            .put(record.getTask().getId(), record.getTask());
+                }
+                break;
+            case REMOVE_TASK:
+                delegate.removeTask(record.getId());
+                orphanTasks.values().forEach(orphans -> orphans.remove(record.getId()));
+                break;
+            case STORE_FLOW_INSTANCE:
+                String instanceId = record.getFlowInstance().getId();
+                flowInstances.put(instanceId, record.getFlowInstance());
+                if (record.getExecutionGraph() != null) {
+                    flowNodes.put(instanceId, record.getExecutionGraph().stream()
+                            .collect(Collectors.toMap(RuntimeNodeState::getName, node -> node)));
+                }
+                break;
+            case UPDATE_FLOW_NODE:
+                if (flowInstances.containsKey(record.getId())) {
+                    flowNodes.computeIfAbsent(record.getId(), id -> new HashMap<>())
+                            .put(record.getNode().getName(), record.getNode());
+                }
+                break;
+            case REMOVE_FLOW_INSTANCE:
+                flowInstances.remove(record.getId());
+                flowNodes.remove(record.getId());
+                break;
+        }
+    }
+
+    private FlowDefinition compile(FlowDefinition definition) {
+        try {
+            Scope scope = ScopeFactory.builder()
+                    .streameshContext(context)
+                    .build()
+                    .create(definition);
+            FlowGraph graph = new FlowGraphBuilder().build(scope);
+            return definition.withGraph(graph)
+                    .withPlan(ExecutionPlan.compile(graph))
+                    .withScope(scope);
+        } catch (RuntimeException e) {
+            logger.warning(String.format("Could not restore flow definition %s: %s", definition.getName(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private void restoreFlowInstances(Collection<FlowInstance> flowInstances,
+                                      Map<String, Map<String, RuntimeNodeState>> flowNodes) {
+        flowInstances.forEach(restored -> {
+            FlowInstance instance = restored;
+            if (!TERMINAL_FLOW_INSTANCE_STATUSES.contains(instance.getStatus())) {
+                instance = instance.withStatus(FlowInstance.FlowInstanceStatus.KILLED);
+            }
+            Definition definition = delegate.getDefinitionById(instance.getDefinitionId());
+            if (definition instanceof FlowDefinition && ((FlowDefinition) definition).getGraph() != null) {
+                ExecutionGraph graph = ExecutionGraph.of((FlowDefinition) definition);
+                Map<String, RuntimeNodeState> nodes = flowNodes.get(instance.getId());
+                if (nodes != null) {
+                    graph.restoreState(nodes.values());
+                }
+                instance = instance.withExecutionGraph(graph);
+            }
+            delegate.storeFlowInstance(instance);
+        });
+    }
+
+    private void failInterruptedTasks() {
+        List<TaskDescriptor> interrupted = delegate.getAllTasks().stream()
+                .filter(task -> !TERMINAL_TASK_STATUSES.contains(task.getStatus()))
+                .collect(Collectors.toList());
+        interrupted.forEach(task -> delegate.updateTask(task.getServiceId(), task
+                .withStatus(TaskDescriptor.TaskStatus.FAILED)
+                .withErrorMessage(INTERRUPTED_TASK_MSG)
+                .withExited(LocalDateTime.now())));
+        if (!interrupted.isEmpty()) {
+            logger.info(String.format("Marked %s interrupted tasks as failed.", interrupted.size()));
+        }
+    }
+
+    private FlowInstance storedFlowInstance(String instanceId) {
+        try {
+            return delegate.getFlowInstance(instanceId);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    private StoreRecord nodeRecord(String instanceId, RuntimeNodeState node) {
+        return StoreRecord.builder()
+                .operation(StoreRecord.Operation.UPDATE_FLOW_NODE)
+                .id(instanceId)
+                .node(node)
+                .build();
+    }
+
+    private StoreRecord taskRecord(String definitionId, TaskDescriptor descriptor) {
+        return StoreRecord.builder()
+                .operation(StoreRecord.Operation.UPDATE_TASK)
+                .definitionId(definitionId)
+                .task(descriptor)
+                .build();
+    }
+
+    private String serialize(StoreRecord record) {
+        try {
+            return mapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize store record " + record.getOperation(), e);
+        }
+    }
+}
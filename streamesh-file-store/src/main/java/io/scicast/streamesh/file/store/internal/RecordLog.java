@@ -0,0 +1,138 @@
+package io.scicast.streamesh.file.store.internal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of serialized store records plus a snapshot that compacts it.
+ * Before a snapshot is written the log is rotated, so that records can keep being appended while it is written.
+ * The store is recovered by replaying the snapshot first, then the rotated log and the log afterwards.
+ * Callers are responsible for serializing access to append and rotate, and to writeSnapshot.
+ */
+public class RecordLog implements Closeable {
+
+    private static final String LOG_FILE = "streamesh.log";
+    private static final String ROTATED_LOG_FILE = "streamesh.log.rotated";
+    private static final String SNAPSHOT_FILE = "streamesh.snapshot";
+    private static final String SNAPSHOT_TMP_FILE = "streamesh.snapshot.tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final Path logPath;
+    private final Path rotatedLogPath;
+    private final Path snapshotPath;
+    private final Path snapshotTmpPath;
+    private final boolean sync;
+
+    private FileOutputStream out;
+    private Writer writer;
+    private long recordsSinceSnapshot;
+
+    public RecordLog(Path directory, boolean sync) throws IOException {
+        Files.createDirectories(directory);
+        this.logPath = directory.resolve(LOG_FILE);
+        this.rotatedLogPath = directory.resolve(ROTATED_LOG_FILE);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.snapshotTmpPath = directory.resolve(SNAPSHOT_TMP_FILE);
+        this.sync = sync;
+    }
+
+    public long replay(Consumer<String> onRecord) throws IOException {
+        long count = replay(snapshotPath, onRecord);
+        recordsSinceSnapshot = replay(rotatedLogPath, onRecord) + replay(logPath, onRecord);
+        openLog(true);
+        return count + recordsSinceSnapshot;
+    }
+
+    private long replay(Path path, Consumer<String> onRecord) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(path.toFile()), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    onRecord.accept(line);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public void append(Collection<String> records) throws IOException {
+        for (String record : records) {
+            writer.write(record);
+            writer.write('\n');
+        }
+        writer.flush();
+        if (sync) {
+            out.getChannel().force(false);
+        }
+        recordsSinceSnapshot += records.size();
+    }
+
+    /**
+     * Starts a new log. The records of the current one are kept until the next snapshot is written, which must
+     * include them.
+     */
+    public void rotate() throws IOException {
+        close();
+        if (Files.exists(rotatedLogPath)) {
+            // The previous snapshot failed, so its records are still needed.
+            if (Files.exists(logPath)) {
+                Files.write(rotatedLogPath, Files.readAllBytes(logPath), StandardOpenOption.APPEND);
+                Files.delete(logPath);
+            }
+        } else if (Files.exists(logPath)) {
+            Files.move(logPath, rotatedLogPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        openLog(false);
+        recordsSinceSnapshot = 0;
+    }
+
+    public void writeSnapshot(Iterator<String> records) throws IOException {
+        try (FileOutputStream snapshotOut = new FileOutputStream(snapshotTmpPath.toFile());
+             Writer snapshotWriter = new BufferedWriter(new OutputStreamWriter(snapshotOut, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            while (records.hasNext()) {
+                snapshotWriter.write(records.next());
+                snapshotWriter.write('\n');
+            }
+            snapshotWriter.flush();
+            snapshotOut.getChannel().force(true);
+        }
+        Files.move(snapshotTmpPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Every record is idempotent, so a crash before the rotated log is deleted only causes some records to be replayed twice.
+        Files.deleteIfExists(rotatedLogPath);
+        logger.fine("Store snapshot written to " + snapshotPath);
+    }
+
+    public long getRecordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    private void openLog(boolean append) throws IOException {
+        out = new FileOutputStream(logPath.toFile(), append);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.scicast.streamesh.file.store.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.flow.FlowDefinition;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import io.scicast.streamesh.core.flow.execution.RuntimeNodeState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * A single entry of the store log. Every operation sets the full state of the entity it refers to,
+ * so replaying a record more than once leaves the store unchanged.
+ */
+@Builder
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StoreRecord {
+
+    private Operation operation;
+    private String id;
+    private String definitionId;
+    private MicroPipe microPipe;
+    private FlowDefinition flowDefinition;
+    private TaskDescriptor task;
+    private FlowInstance flowInstance;
+    private Set<RuntimeNodeState> executionGraph;
+    private RuntimeNodeState node;
+
+    public enum Operation {
+        STORE_DEFINITION,
+        REMOVE_DEFINITION,
+        UPDATE_TASK,
+        REMOVE_TASK,
+        STORE_FLOW_INSTANCE,
+        UPDATE_FLOW_NODE,
+        REMOVE_FLOW_INSTANCE
+    }
+}
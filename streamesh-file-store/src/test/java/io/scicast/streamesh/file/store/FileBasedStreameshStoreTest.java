@@ -0,0 +1,122 @@
+package io.scicast.streamesh.file.store;
+
+import io.scicast.streamesh.core.MicroPipe;
+import io.scicast.streamesh.core.StreameshContext;
+import io.scicast.streamesh.core.TaskDescriptor;
+import io.scicast.streamesh.core.concurrent.ExecutionEngine;
+import io.scicast.streamesh.core.flow.FlowInstance;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+public class FileBasedStreameshStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private StreameshContext context;
+    private MicroPipe pipe;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("store").toPath();
+        context = StreameshContext.builder()
+                .executionEngine(ExecutionEngine.builder()
+                        .threads(1)
+                        .schedulerThreads(1)
+                        .build())
+                .build();
+        pipe = MicroPipe.builder()
+                .id("pipe-id")
+                .name("test-pipe")
+                .image("test-image")
+                .build();
+    }
+
+    @Test
+    public void testStateIsRestoredAfterRestart() {
+        FileBasedStreameshStore store = open(1000);
+        store.storeDefinition(pipe);
+        store.updateTask(pipe.getId(), task("running-task", TaskDescriptor.TaskStatus.RUNNING));
+        store.updateTask(pipe.getId(), task("complete-task", TaskDescriptor.TaskStatus.RUNNING));
+        store.updateTask(pipe.getId(), task("complete-task", TaskDescriptor.TaskStatus.COMPLETE)
+                .withExited(LocalDateTime.now()));
+        store.updateTask(pipe.getId(), task("removed-task", TaskDescriptor.TaskStatus.COMPLETE));
+        store.removeTask("removed-task");
+        store.storeFlowInstance(FlowInstance.builder()
+                .id("flow-instance")
+                .definitionId("flow-definition")
+                .status(FlowInstance.FlowInstanceStatus.RUNNING)
+                .build());
+
+        FileBasedStreameshStore restored = open(1000);
+
+        assertEquals("test-pipe", restored.getDefinitionById(pipe.getId()).getName());
+        assertEquals(2, restored.getTasksByDefinition(pipe.getId()).size());
+        assertEquals(TaskDescriptor.TaskStatus.COMPLETE, restored.getTaskById("complete-task").getStatus());
+        assertNotNull(restored.getTaskById("complete-task").getExited());
+        TaskDescriptor interrupted = restored.getTaskById("running-task");
+        assertEquals(TaskDescriptor.TaskStatus.FAILED, interrupted.getStatus());
+        assertNotNull(interrupted.getErrorMessage());
+        assertEquals(FlowInstance.FlowInstanceStatus.KILLED, restored.getFlowInstance("flow-instance").getStatus());
+    }
+
+    @Test
+    public void testStateSurvivesCompaction() {
+        FileBasedStreameshStore store = open(10);
+        store.storeDefinition(pipe);
+        for (int i = 0; i < 100; i++) {
+            store.updateTask(pipe.getId(), task("task-" + i, TaskDescriptor.TaskStatus.COMPLETE));
+        }
+        store.removeDefinition(pipe.getId());
+        store.storeDefinition(pipe);
+
+        // The single engine thread runs tasks in order: once this one is done, the background compaction is too.
+        context.getExecutionEngine().submit(() -> null).join();
+        FileBasedStreameshStore restored = open(10);
+
+        assertNotNull(restored.getDefinitionByName("test-pipe"));
+        assertEquals(100, restored.getAllTasks().size());
+    }
+
+    @Test
+    public void testOnlyChangedFlowInstancesAreAppended() throws IOException {
+        FileBasedStreameshStore store = open(1000);
+        FlowInstance instance = FlowInstance.builder()
+                .id("flow-instance")
+                .definitionId("flow-definition")
+                .status(FlowInstance.FlowInstanceStatus.RUNNING)
+                .build();
+        store.storeFlowInstance(instance);
+        store.storeFlowInstance(instance.withExecutionGraph(null));
+        store.storeFlowInstance(instance.withStatus(FlowInstance.FlowInstanceStatus.COMPLETE));
+
+        assertEquals(2, Files.readAllLines(directory.resolve("streamesh.log")).size());
+        assertEquals(FlowInstance.FlowInstanceStatus.COMPLETE, open(1000).getFlowInstance("flow-instance").getStatus());
+    }
+
+    private FileBasedStreameshStore open(long snapshotThreshold) {
+        FileBasedStreameshStore store = new FileBasedStreameshStore(directory, false, snapshotThreshold);
+        store.init(context);
+        return store;
+    }
+
+    private TaskDescriptor task(String id, TaskDescriptor.TaskStatus status) {
+        return TaskDescriptor.builder()
+                .id(id)
+                .serviceId(pipe.getId())
+                .serviceName(pipe.getName())
+                .status(status)
+                .started(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,12 +1,14 @@
 package io.scicast.streamesh.server;
 
 import io.scicast.streamesh.core.StreameshOrchestrator;
+import io.scicast.streamesh.core.exception.DefinitionNotReadyException;
 import io.scicast.streamesh.core.exception.NotFoundException;
 import io.scicast.streamesh.core.flow.FlowInstance;
 import io.scicast.streamesh.core.flow.FlowOutput;
 import io.scicast.streamesh.core.flow.execution.FlowOutputRuntimeNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
@@ -78,5 +80,10 @@ public class FlowInstancesController {
 
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(DefinitionNotReadyException.class)
+    public void handleDefinitionNotReady() {
+
+    }
 
 }
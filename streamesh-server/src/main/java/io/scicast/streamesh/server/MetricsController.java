@@ -0,0 +1,22 @@
+package io.scicast.streamesh.server;
+
+import io.scicast.streamesh.core.StreameshOrchestrator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private StreameshOrchestrator orchestrator;
+
+    @GetMapping(value = "/metrics", produces = "application/json")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(orchestrator.getMetrics());
+    }
+
+}
@@ -2,23 +2,38 @@ package io.scicast.streamesh.server;
 
 import io.scicast.streamesh.core.TaskDescriptor;
 import io.scicast.streamesh.core.StreameshOrchestrator;
+import io.scicast.streamesh.core.exception.CapacityExceededException;
+import io.scicast.streamesh.core.exception.DefinitionNotReadyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 import java.util.logging.Logger;
 
 @RestController
 public class TasksController {
 
     public static final String STREAMESH_PUBLIC_KEY = "streamesh-public-key";
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final String BYTES_UNIT = "bytes";
 
     @Autowired
     private StreameshOrchestrator orchestrator;
@@ -47,8 +62,33 @@ public class TasksController {
     @GetMapping(value = "/tasks/{taskId}/{outputName}")
     public void getOutput(@PathVariable("taskId") String taskId,
                           @PathVariable("outputName") String outputName,
+                          @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                          HttpServletRequest request,
                           HttpServletResponse response) throws IOException {
-        InputStream is = orchestrator.getTaskOutput(taskId, outputName);
+        Optional<Path> completedOutput = orchestrator.getCompletedTaskOutput(taskId, outputName);
+        if (completedOutput.isPresent()) {
+            sendFile(completedOutput.get(), range, request, response);
+            return;
+        }
+        stream(taskId, orchestrator.getTaskOutput(taskId, outputName), response);
+    }
+
+    @GetMapping(value = "/tasks/{taskId}/{outputName}/parts/{partName}")
+    public void getOutputPart(@PathVariable("taskId") String taskId,
+                              @PathVariable("outputName") String outputName,
+                              @PathVariable("partName") String partName,
+                              @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        Optional<Path> completedPart = orchestrator.getCompletedTaskOutputPart(taskId, outputName, partName);
+        if (completedPart.isPresent()) {
+            sendFile(completedPart.get(), range, request, response);
+            return;
+        }
+        stream(taskId, orchestrator.getTaskOutputPart(taskId, outputName, partName), response);
+    }
+
+    private void stream(String taskId, InputStream is, HttpServletResponse response) throws IOException {
         ServletOutputStream os = response.getOutputStream();
         byte[] buf = new byte[100 * 1024];
         int b = is.read(buf);
@@ -67,6 +107,47 @@ public class TasksController {
         response.flushBuffer();
     }
 
+    private void sendFile(Path path, String rangeHeader, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(path);
+        long start = 0;
+        long end = length - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multiple ranges are not supported: the full content is a valid answer to such requests.
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            // Let the connector transfer the file with sendfile once the request returns.
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        } catch (IOException e) {
+            logger.info(String.format("Output request for file %s has been cancelled by the client.", path));
+        }
+    }
+
     @GetMapping("/tasks/{taskId}")
     public ResponseEntity<TaskDescriptor> getTaskDetails(@PathVariable("taskId") String taskId) {
         return ResponseEntity.ok(orchestrator.getTask(taskId));
@@ -82,5 +163,16 @@ public class TasksController {
         return ResponseEntity.ok(orchestrator.getTasksByFlowInstanceId(flowInstanceId));
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(DefinitionNotReadyException.class)
+    public void handleDefinitionNotReady() {
+
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(CapacityExceededException.class)
+    public void handleCapacityExceeded() {
+
+    }
 
 }